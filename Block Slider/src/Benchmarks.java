@@ -0,0 +1,322 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import api.DescriptionUtil;
+import api.Direction;
+import api.Move;
+import hw3.Block;
+import hw3.Board;
+import hw3.GridUtil;
+import hw3.Layout;
+import hw3.Solver;
+
+/**
+ * Timing runs for the Board, GridUtil, DescriptionUtil and Solver hot paths,
+ * written as JSON so results can be compared between versions. Each benchmark
+ * runs in several timed iterations after some warmup iterations, and the score
+ * is the average time per operation. As in JMH, the error is the half-width of
+ * the 99.9% confidence interval of the mean from Student's t distribution, and
+ * the results are in the shape JMH writes with -rf json.
+ * <p>
+ * Usage: java Benchmarks [output.json] [name filter], run from the directory
+ * that holds games.txt.
+ */
+public class Benchmarks
+{
+	/**
+	 * Number of untimed iterations run first.
+	 */
+	private static final int WARMUP_ITERATIONS = 5;
+
+	/**
+	 * Number of timed iterations.
+	 */
+	private static final int MEASURED_ITERATIONS = 5;
+
+	/**
+	 * Length of each iteration.
+	 */
+	private static final long ITERATION_NANOS = 500000000L;
+
+	/**
+	 * Two-sided 99.9% quantiles of Student's t distribution, t(0.9995, df), for 1
+	 * to 30 degrees of freedom. More degrees of freedom use the last entry, which
+	 * slightly widens the interval.
+	 */
+	private static final double[] T_999 = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781,
+			4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850, 3.819, 3.792, 3.768, 3.745,
+			3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+
+	/**
+	 * Number of moves after which boards moved back and forth are reset, so
+	 * their move history does not grow without end.
+	 */
+	private static final int RESET_INTERVAL = 4096;
+
+	/**
+	 * One operation to be timed. Returns a value depending on its work so the
+	 * work cannot be optimized away.
+	 */
+	private interface Operation
+	{
+		long run() throws Exception;
+	}
+
+	/**
+	 * Sum of the values returned by all operations.
+	 */
+	private static long sink;
+
+	public static void main(String args[]) throws Exception
+	{
+		String output = args.length > 0 ? args[0] : "benchmarks.json";
+		String filter = args.length > 1 ? args[1] : "";
+		ArrayList<String[][]> games = DescriptionUtil.readBoardDescriptionsFromFile("games.txt");
+
+		ArrayList<String> results = new ArrayList<String>();
+		for (int i = 0; i < games.size(); i++)
+		{
+			String[][] desc = games.get(i);
+			Board board = new Board(desc);
+			Move move = firstMove(board);
+			int row = move.getBlock().getFirstRow();
+			int col = move.getBlock().getFirstCol();
+			Direction dir = move.getDirection();
+			Board moving = new Board(desc);
+			Board undoing = new Board(desc);
+			Board resetting = new Board(desc);
+
+			bench(results, filter, "Board.moveGrabbedBlock:" + i, () -> moveAndBack(moving, row, col, dir));
+			bench(results, filter, "Board.getAllPossibleMoves:" + i, () -> board.getAllPossibleMoves().size());
+			int[] buffer = new int[Layout.maxMoves(board.getBlocks().size())];
+			bench(results, filter, "Board.generateMoves:" + i, () -> board.generateMoves(buffer));
+			bench(results, filter, "Board.isGameOver:" + i, () -> board.isGameOver() ? 1 : 0);
+			bench(results, filter, "Board.undoMove:" + i, () -> moveAndUndo(undoing, row, col, dir));
+			bench(results, filter, "Board.reset:" + i, () ->
+			{
+				resetting.reset();
+				return resetting.getMoveCount();
+			});
+			bench(results, filter, "GridUtil.createGrid:" + i, () -> GridUtil.createGrid(desc).length);
+			bench(results, filter, "GridUtil.findBlocks:" + i, () -> GridUtil.findBlocks(desc).size());
+			char[][] grid = toChars(desc);
+			bench(results, filter, "Board(String[][]):" + i, () -> new Board(desc).getBlocks().size());
+			bench(results, filter, "GridUtil.createBoard:" + i, () -> GridUtil.createBoard(grid).getBlocks().size());
+		}
+
+		bench(results, filter, "DescriptionUtil.readBoardDescriptionsFromFile",
+				() -> DescriptionUtil.readBoardDescriptionsFromFile("games.txt").size());
+		bench(results, filter, "DescriptionUtil.streamBoardDescriptions", () ->
+		{
+			try (Stream<String[][]> boards = DescriptionUtil.streamBoardDescriptions("games.txt"))
+			{
+				return boards.count();
+			}
+		});
+		bench(results, filter, "DescriptionUtil.streamBoardGrids", () ->
+		{
+			try (Stream<char[][]> boards = DescriptionUtil.streamBoardGrids("games.txt"))
+			{
+				return boards.map(GridUtil::createBoard).count();
+			}
+		});
+		bench(results, filter, "Solver.solveShortest", () -> solveAll(games, 0));
+		bench(results, filter, "Solver.solveIdaStar", () -> solveAll(games, 1));
+		bench(results, filter, "Solver.solveAnytime", () -> solveAll(games, 2));
+		bench(results, filter, "Solver.solveFewestSlides", () -> solveAll(games, 3));
+
+		try (PrintWriter out = new PrintWriter(output))
+		{
+			out.println("[");
+			for (int i = 0; i < results.size(); i++)
+			{
+				out.println(results.get(i) + (i + 1 < results.size() ? "," : ""));
+			}
+			out.println("]");
+		}
+		System.out.println("Wrote " + results.size() + " results to " + output + " (" + sink + ")");
+	}
+
+	/**
+	 * Returns a move from the starting position of the given board that does not
+	 * end the game. The board is left at its starting position.
+	 */
+	private static Move firstMove(Board board)
+	{
+		for (Move move : board.getAllPossibleMoves())
+		{
+			Block block = move.getBlock();
+			board.grabBlockAtCell(block.getFirstRow(), block.getFirstCol());
+			board.moveGrabbedBlock(move.getDirection());
+			boolean over = board.isGameOver();
+			board.reset();
+			if (!over)
+			{
+				return move;
+			}
+		}
+		throw new IllegalStateException("No move that keeps the game going");
+	}
+
+	/**
+	 * Moves the block at the given cell one cell in the given direction and back
+	 * again.
+	 */
+	private static long moveAndBack(Board board, int row, int col, Direction dir)
+	{
+		if (board.getMoveCount() >= RESET_INTERVAL)
+		{
+			board.reset();
+		}
+		board.grabBlockAtCell(row, col);
+		board.moveGrabbedBlock(dir);
+		board.moveGrabbedBlock(opposite(dir));
+		board.releaseBlock();
+		return board.getMoveCount();
+	}
+
+	/**
+	 * Moves the block at the given cell one cell in the given direction and undoes
+	 * the move.
+	 */
+	private static long moveAndUndo(Board board, int row, int col, Direction dir)
+	{
+		board.grabBlockAtCell(row, col);
+		board.moveGrabbedBlock(dir);
+		board.releaseBlock();
+		board.undoMove();
+		return board.getMoveCount();
+	}
+
+	/**
+	 * Solves every game with the given strategy and returns the total length of
+	 * the solutions.
+	 */
+	private static long solveAll(ArrayList<String[][]> games, int strategy)
+	{
+		long total = 0;
+		for (String[][] desc : games)
+		{
+			Board board = new Board(desc);
+			Solver solver = new Solver(200);
+			if (strategy == 0)
+			{
+				total += solver.solveShortest(board).getLength();
+			}
+			else if (strategy == 1)
+			{
+				total += solver.solveIdaStar(board).getLength();
+			}
+			else if (strategy == 2)
+			{
+				total += solver.solveAnytime(board).getLength();
+			}
+			else
+			{
+				total += solver.solveFewestSlides(board).getLength();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the opposite of the given direction.
+	 */
+	private static Direction opposite(Direction dir)
+	{
+		switch (dir)
+		{
+		case LEFT:
+			return Direction.RIGHT;
+		case RIGHT:
+			return Direction.LEFT;
+		case UP:
+			return Direction.DOWN;
+		default:
+			return Direction.UP;
+		}
+	}
+
+	/**
+	 * Returns the given description with one char per cell, the first of its
+	 * string.
+	 */
+	private static char[][] toChars(String[][] desc)
+	{
+		char[][] grid = new char[desc.length][];
+		for (int i = 0; i < desc.length; i++)
+		{
+			grid[i] = new char[desc[i].length];
+			for (int j = 0; j < desc[i].length; j++)
+			{
+				grid[i][j] = desc[i][j].charAt(0);
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Times the given operation if its name contains the filter, and adds its
+	 * result as a JSON object to results.
+	 */
+	private static void bench(ArrayList<String> results, String filter, String name, Operation op) throws Exception
+	{
+		if (!name.contains(filter))
+		{
+			return;
+		}
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+		{
+			iteration(op);
+		}
+		double[] scores = new double[MEASURED_ITERATIONS];
+		double mean = 0;
+		for (int i = 0; i < MEASURED_ITERATIONS; i++)
+		{
+			scores[i] = iteration(op);
+			mean += scores[i] / MEASURED_ITERATIONS;
+		}
+		double variance = 0;
+		for (double score : scores)
+		{
+			variance += (score - mean) * (score - mean) / (MEASURED_ITERATIONS - 1);
+		}
+		int degrees = Math.min(MEASURED_ITERATIONS - 1, T_999.length);
+		double error = T_999[degrees - 1] * Math.sqrt(variance / MEASURED_ITERATIONS);
+
+		StringBuilder raw = new StringBuilder();
+		for (int i = 0; i < scores.length; i++)
+		{
+			raw.append(i == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.3f", scores[i]));
+		}
+		results.add(String.format(Locale.ROOT, "  {\"benchmark\": \"%s\", \"mode\": \"avgt\", \"warmupIterations\": %d, "
+				+ "\"measurementIterations\": %d, \"primaryMetric\": {\"score\": %.3f, \"scoreError\": %.3f, "
+				+ "\"scoreConfidence\": [%.3f, %.3f], \"scoreUnit\": \"ns/op\", \"rawData\": [[%s]]}}", name,
+				WARMUP_ITERATIONS, MEASURED_ITERATIONS, mean, error, mean - error, mean + error, raw));
+		System.out.println(String.format("%-45s %14.1f ns/op", name, mean));
+	}
+
+	/**
+	 * Runs the operation repeatedly for one iteration and returns the average
+	 * time per operation in nanoseconds.
+	 */
+	private static double iteration(Operation op) throws Exception
+	{
+		long count = 0;
+		long start = System.nanoTime();
+		long now = start;
+		while (now - start < ITERATION_NANOS)
+		{
+			for (int i = 0; i < 16; i++)
+			{
+				sink += op.run();
+			}
+			count += 16;
+			now = System.nanoTime();
+		}
+		return (double) (now - start) / count;
+	}
+}
@@ -1,11 +1,25 @@
-import java.io.FileNotFoundException; 
+import java.io.File; 
+import java.io.IOException; 
+import java.nio.file.Files; 
+import java.nio.file.Path; 
 import java.util.ArrayList; 
+import java.util.Arrays; 
+import java.util.HashMap; 
+import java.util.Random; 
 import api.DescriptionUtil; 
+import api.Direction; 
 import api.Move; 
+import api.Orientation; 
+import hw3.Block; 
 import hw3.Board; 
+import hw3.BoardState; 
+import hw3.MoveLog; 
+import hw3.PuzzleCatalog; 
+import hw3.RetrogradeTable; 
 import hw3.Solver; 
+import hw3.SolverResult; 
 public class SolverTests { 
-  public static void main(String args[]) throws FileNotFoundException { 
+  public static void main(String args[]) throws IOException { 
     ArrayList<String[][]> gameDescriptions = DescriptionUtil 
             .readBoardDescriptionsFromFile("games.txt"); 
     int boardIndex = 0; // change to select different board setup 
@@ -17,5 +31,204 @@ public class SolverTests {
  
     System.out.println("Number of solutions found: " + solutions.size()); 
     solver.printSolutions(); 
+ 
+    SolverResult shortest = new Solver(50).solveShortest(board); 
+    System.out.println("Shortest solution: " + shortest); 
+    System.out.println(shortest.toMoves(board)); 
+ 
+    checkMoveLog(); 
+    checkSolverReuse(gameDescriptions.get(1)); 
+    checkEngines(gameDescriptions); 
+    checkCatalog(gameDescriptions); 
+    checkUndoRedo(gameDescriptions.get(5)); 
+    checkStateFile(gameDescriptions.get(3)); 
+    checkSlides(gameDescriptions.get(0)); 
+  } 
+ 
+  private static void checkSlides(String[][] description) { 
+    Board board = new Board(description); 
+    ArrayList<Move> slides = board.getAllPossibleSlides(); 
+    Move longest = slides.get(0); 
+    for (Move slide : slides) { 
+      if (slide.getCells() > longest.getCells()) { 
+        longest = slide; 
+      } 
+    } 
+    Block other = null; 
+    for (Block block : board.getBlocks()) { 
+      if (block != longest.getBlock()) { 
+        other = block; 
+      } 
+    } 
+    board.grabBlockAtCell(other.getFirstRow(), other.getFirstCol()); 
+    int moved = board.applySlide(longest); 
+    System.out.println("Sliding " + longest.getCells() + " cells moves " + moved + " and keeps the grabbed block is " 
+        + (board.getGrabbedBlock() == other) + ", expected is " + longest.getCells() + " and true."); 
+    board.releaseBlock(); 
+    board.undoMoves(moved); 
+    moved = board.applySlide(new Move(longest.getBlock(), longest.getDirection(), longest.getCells() + 1)); 
+    System.out.println("Sliding one cell too far moves " + moved + " and leaves nothing grabbed is " 
+        + (board.getGrabbedBlock() == null) + ", expected is " + longest.getCells() + " and true."); 
+    board.undoMoves(moved); 
+    Block slid = longest.getBlock(); 
+    int rowOffset = slid.getOrientation() == Orientation.VERTICAL ? slid.getLength() - 1 : 0; 
+    int colOffset = slid.getOrientation() == Orientation.HORIZONTAL ? slid.getLength() - 1 : 0; 
+    board.grabBlockAtCell(slid.getFirstRow() + rowOffset, slid.getFirstCol() + colOffset); 
+    board.applySlide(longest); 
+    boolean sameCell = board.getGrabbedBlock() == slid 
+        && board.getGrabbedCell().getRow() == slid.getFirstRow() + rowOffset 
+        && board.getGrabbedCell().getCol() == slid.getFirstCol() + colOffset; 
+    System.out.println("Sliding the grabbed block keeps it grabbed at the same cell of it is " + sameCell 
+        + ", expected is true."); 
+  } 
+ 
+  private static void checkStateFile(String[][] description) throws IOException { 
+    Board board = new Board(description); 
+    File file = Files.createTempFile("states", ".bin").toFile(); 
+    Solver solver = new Solver(100); 
+    solver.setStateBudget(1 << 24); 
+    solver.setStateFile(file); 
+    RetrogradeTable table = solver.analyze(board); 
+    int[] start = new BoardState(board).getPositions(); 
+    int before = table.distance(start); 
+    solver.solve(board); 
+    int shortest = solver.solveShortest(board).getLength(); 
+    System.out.println("Retrograde distance " + before + " after a search on the same state file is " 
+        + table.distance(start) + ", expected is " + shortest + "."); 
+    file.delete(); 
+  } 
+ 
+  private static void checkUndoRedo(String[][] description) { 
+    Board board = new Board(description); 
+    Random random = new Random(42); 
+    ArrayList<String> positions = new ArrayList<String>(); 
+    ArrayList<Long> fingerprints = new ArrayList<Long>(); 
+    HashMap<String, Long> seen = new HashMap<String, Long>(); 
+    boolean same = true; 
+    positions.add(board.toString()); 
+    fingerprints.add(board.fingerprint()); 
+    while (positions.size() <= 300 && !board.isGameOver()) { 
+      ArrayList<Move> moves = board.getAllPossibleMoves(); 
+      Move move = moves.get(random.nextInt(moves.size())); 
+      board.grabBlockAtCell(move.getBlock().getFirstRow(), move.getBlock().getFirstCol()); 
+      board.moveGrabbedBlock(move.getDirection()); 
+      board.releaseBlock(); 
+      positions.add(board.toString()); 
+      fingerprints.add(board.fingerprint()); 
+      // a position reached again by another path must hash the same 
+      Long earlier = seen.putIfAbsent(board.toString(), board.fingerprint()); 
+      same &= earlier == null || earlier == board.fingerprint(); 
+    } 
+    int made = positions.size() - 1; 
+    for (int i = made - 1; i >= 0; i--) { 
+      board.undoMove(); 
+      same &= board.toString().equals(positions.get(i)) && board.fingerprint() == fingerprints.get(i); 
+    } 
+    same &= board.fingerprint() == new Board(description).fingerprint(); 
+    for (int i = 1; i <= made; i++) { 
+      board.redoMove(); 
+      same &= board.toString().equals(positions.get(i)) && board.fingerprint() == fingerprints.get(i); 
+    } 
+    same &= !board.canRedo() && board.getMoveCount() == made; 
+    System.out.println("Undo and redo of " + made + " random moves restore every position and fingerprint is " 
+        + same + ", expected is true."); 
+  } 
+ 
+  private static void checkCatalog(ArrayList<String[][]> games) throws IOException { 
+    Path file = Files.createTempFile("games", ".catalog"); 
+    int converted = PuzzleCatalog.convert("games.txt", file); 
+    boolean same; 
+    try (PuzzleCatalog catalog = new PuzzleCatalog(file)) { 
+      same = catalog.size() == games.size(); 
+      for (int i = games.size() - 1; same && i >= 0; i--) { 
+        Board expected = new Board(games.get(i)); 
+        Board loaded = catalog.getBoard(i); 
+        Board described = new Board(catalog.getDescription(i)); 
+        same = expected.toString().equals(loaded.toString()) 
+            && expected.getBlocks().toString().equals(loaded.getBlocks().toString()) 
+            && expected.toString().equals(described.toString()) 
+            && expected.getBlocks().toString().equals(described.getBlocks().toString()); 
+      } 
+    } 
+    Files.delete(file); 
+    System.out.println("Catalog of " + converted + " boards loads back the same boards is " + same 
+        + ", expected is true."); 
+  } 
+ 
+  private static void checkEngines(ArrayList<String[][]> games) throws IOException { 
+    File dir = Files.createTempDirectory("solver").toFile(); 
+    for (int i = 0; i < games.size(); i++) { 
+      Board board = new Board(games.get(i)); 
+      Solver patterns = new Solver(100); 
+      patterns.setPatternDatabaseDirectory(dir); 
+      Solver offHeap = new Solver(100); 
+      offHeap.setStateBudget(1 << 24); 
+      int[] lengths = { new Solver(100).solveShortest(board).getLength(), 
+          new Solver(100).solveIdaStar(board).getLength(), 
+          patterns.solveIdaStar(board).getLength(), 
+          new Solver(100).solveExternal(board, dir).getLength(), 
+          new Solver(100).solveAnytime(board).getLength(), 
+          offHeap.solveShortest(board).getLength(), 
+          new Solver(100).analyze(board).solve(new BoardState(board).getPositions()).getLength() }; 
+      System.out.println("Board " + i + " shortest by BFS, IDA*, pattern database, external, anytime, off-heap " 
+          + "and retrograde is " + Arrays.toString(lengths) + ", expected all " + lengths[0] + "."); 
+    } 
+    for (File file : dir.listFiles()) { 
+      file.delete(); 
+    } 
+    dir.delete(); 
+  } 
+ 
+  private static void checkSolverReuse(String[][] description) { 
+    Board board = new Board(description); 
+    Solver reused = new Solver(11); 
+    reused.solve(board); 
+    int first = reused.getSolutions().size(); 
+    reused.solve(board); 
+    int second = reused.getSolutions().size() - first; 
+    System.out.println("Solving the same board twice finds " + second + " solutions the second time, expected is " 
+        + first + "."); 
+ 
+    Move move = board.getAllPossibleMoves().get(0); 
+    board.grabBlockAtCell(move.getBlock().getFirstRow(), move.getBlock().getFirstCol()); 
+    board.moveGrabbedBlock(move.getDirection()); 
+    board.releaseBlock(); 
+    int before = reused.getSolutions().size(); 
+    reused.solve(board); 
+    Solver fresh = new Solver(11); 
+    fresh.solve(board); 
+    System.out.println("After a move a reused solver finds " + (reused.getSolutions().size() - before) 
+        + " solutions, expected is " + fresh.getSolutions().size() + "."); 
+  } 
+ 
+  private static void checkMoveLog() throws IOException { 
+    Path file = Files.createTempFile("moves", ".log"); 
+    for (int run : new int[] { 1, 128, 129, 200, 256, 257, 600 }) { 
+      MoveLog expected = new MoveLog(); 
+      Files.delete(file); 
+      try (MoveLog.Writer writer = new MoveLog.Writer(file)) { 
+        for (int i = 0; i < run; i++) { 
+          writer.append(0, Direction.RIGHT); 
+          expected.append(0, Direction.RIGHT); 
+        } 
+        writer.append(1, Direction.UP); 
+        expected.append(1, Direction.UP); 
+      } 
+      String streamed = MoveLog.read(file).toString(); 
+      expected.write(file); 
+      String written = MoveLog.read(file).toString(); 
+      System.out.println("Move log of " + run + " moves right and one up reads back as " + streamed + " and " 
+          + written + ", expected is " + expected + "."); 
+    } 
+ 
+    Files.write(file, "not a move log".getBytes()); 
+    boolean refused = false; 
+    try (MoveLog.Writer writer = new MoveLog.Writer(file)) { 
+      writer.append(0, Direction.RIGHT); 
+    } catch (IOException e) { 
+      refused = true; 
+    } 
+    System.out.println("Appending to a file that is not a move log is refused is " + refused + ", expected is true."); 
+    Files.delete(file); 
   } 
 } 
@@ -0,0 +1,278 @@
+package api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads board position descriptions from a file one at a time, in the format
+ * read by DescriptionUtil.readBoardDescriptionsFromFile(). The file is mapped
+ * into memory and parsed byte by byte, so no line or Scanner objects are made
+ * and only the board being returned is held in memory. Cell descriptions of a
+ * single ASCII character, which is all a board uses, are shared String
+ * constants rather than new strings. Files larger than the mapping window are
+ * mapped a window at a time.
+ * <p>
+ * Boards are separated by one or more blank lines. Boards can also be read with
+ * nextGrid() as one char per cell, which makes no strings at all; a reader
+ * should be used through either next() or nextGrid(), not both. The reader
+ * must be closed to release the file.
+ */
+public class DescriptionReader implements Iterator<String[][]>, Closeable {
+	/**
+	 * Largest number of bytes mapped at one time.
+	 */
+	private static final long WINDOW_BYTES = 1L << 30;
+
+	/**
+	 * The one character cell description for each ASCII character.
+	 */
+	private static final String[] TOKENS = new String[128];
+
+	static {
+		for (int c = 0; c < TOKENS.length; c++) {
+			TOKENS[c] = String.valueOf((char) c);
+		}
+	}
+
+	/**
+	 * Channel of the file being read.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Size of the file in bytes.
+	 */
+	private long size;
+
+	/**
+	 * The mapped part of the file, or null before the first byte is read.
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * Offset in the file of the first byte of the window.
+	 */
+	private long windowStart;
+
+	/**
+	 * Offset in the file of the next byte to parse.
+	 */
+	private long position;
+
+	/**
+	 * The next board, parsed by hasNext() and not yet returned, or null.
+	 */
+	private String[][] next;
+
+	/**
+	 * Rows of the board being parsed by next(), reused for every board.
+	 */
+	private ArrayList<String[]> rows = new ArrayList<String[]>();
+
+	/**
+	 * Rows of the board being parsed by nextGrid(), reused for every board.
+	 */
+	private ArrayList<char[]> charRows = new ArrayList<char[]>();
+
+	/**
+	 * Offsets in the file of the first byte of each cell description of the
+	 * current line.
+	 */
+	private long[] tokenStarts = new long[64];
+
+	/**
+	 * Offsets in the file just past each cell description of the current line.
+	 */
+	private long[] tokenEnds = new long[64];
+
+	/**
+	 * Number of cell descriptions on the current line.
+	 */
+	private int tokens;
+
+	/**
+	 * Opens the given file for reading.
+	 *
+	 * @param absolutePath the path to the file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public DescriptionReader(String absolutePath) throws IOException {
+		channel = FileChannel.open(Paths.get(absolutePath), StandardOpenOption.READ);
+		size = channel.size();
+	}
+
+	/**
+	 * Returns true if there is another board in the file.
+	 *
+	 * @return true if next() will return a board
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			next = readBoard();
+		}
+		return next != null;
+	}
+
+	/**
+	 * Returns the next board of the file.
+	 *
+	 * @return a 2D array of strings describing a board position
+	 * @throws NoSuchElementException if there are no more boards
+	 * @throws UncheckedIOException   if the file cannot be read
+	 */
+	@Override
+	public String[][] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		String[][] board = next;
+		next = null;
+		return board;
+	}
+
+	/**
+	 * Returns the next board of the file with one char per cell, the first
+	 * character of its description, or null if there are no more boards. See
+	 * GridUtil.createBoard().
+	 *
+	 * @return a 2D array of chars describing a board position, or null
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public char[][] nextGrid() {
+		charRows.clear();
+		while (nextLine(!charRows.isEmpty())) {
+			char[] row = new char[tokens];
+			for (int k = 0; k < tokens; k++) {
+				row[k] = (char) (byteAt(tokenStarts[k]) & 0xFF);
+			}
+			charRows.add(row);
+		}
+		return charRows.isEmpty() ? null : charRows.toArray(new char[0][0]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	/**
+	 * Parses the lines of the next board, or returns null at the end of the file.
+	 */
+	private String[][] readBoard() {
+		rows.clear();
+		while (nextLine(!rows.isEmpty())) {
+			String[] row = new String[tokens];
+			for (int k = 0; k < tokens; k++) {
+				row[k] = token(tokenStarts[k], tokenEnds[k]);
+			}
+			rows.add(row);
+		}
+		return rows.isEmpty() ? null : rows.toArray(new String[0][0]);
+	}
+
+	/**
+	 * Finds the cell descriptions of the next line of a board, skipping blank
+	 * lines before the board starts. Returns false at the blank line or end of
+	 * file that ends a started board, or at the end of the file.
+	 */
+	private boolean nextLine(boolean started) {
+		while (position < size) {
+			long end = lineEnd(position);
+			split(position, end);
+			position = end + 1;
+			if (tokens > 0) {
+				return true;
+			} else if (started) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the offset of the newline ending the line starting at the given
+	 * offset, or the size of the file if it is the last line.
+	 */
+	private long lineEnd(long start) {
+		long end = start;
+		while (end < size && byteAt(end) != '\n') {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Splits the bytes between the given offsets on whitespace, recording where
+	 * each cell description starts and ends. A blank line has none.
+	 */
+	private void split(long start, long end) {
+		tokens = 0;
+		long i = start;
+		while (i < end) {
+			if (isSpace(byteAt(i))) {
+				i++;
+				continue;
+			}
+			if (tokens == tokenStarts.length) {
+				tokenStarts = Arrays.copyOf(tokenStarts, tokens * 2);
+				tokenEnds = Arrays.copyOf(tokenEnds, tokens * 2);
+			}
+			tokenStarts[tokens] = i;
+			while (i < end && !isSpace(byteAt(i))) {
+				i++;
+			}
+			tokenEnds[tokens++] = i;
+		}
+	}
+
+	/**
+	 * Returns the cell description held in the bytes between the given offsets.
+	 */
+	private String token(long start, long end) {
+		byte first = byteAt(start);
+		if (end - start == 1 && first >= 0) {
+			return TOKENS[first];
+		}
+		byte[] bytes = new byte[(int) (end - start)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = byteAt(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns true for the bytes that separate cell descriptions.
+	 */
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+	}
+
+	/**
+	 * Returns the byte at the given offset of the file, mapping the window that
+	 * holds it if needed.
+	 */
+	private byte byteAt(long offset) {
+		if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+			try {
+				windowStart = offset;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_BYTES, size - offset));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return window.get((int) (offset - windowStart));
+	}
+}
@@ -2,8 +2,15 @@ package api;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utilities for reading board position descriptions from a file.
@@ -38,6 +45,66 @@ public class DescriptionUtil {
 		return positions;
 	}
 
+	/**
+	 * Returns the board position descriptions of the given file as a lazy stream,
+	 * in the same order and format as readBoardDescriptionsFromFile(). Boards are
+	 * parsed from a memory mapping of the file as the stream is consumed, so files
+	 * with millions of boards can be processed without holding them all in
+	 * memory. Blank lines between boards are skipped rather than giving empty
+	 * boards. The stream must be closed to release the file, for example with
+	 * try-with-resources. Read errors are thrown as UncheckedIOException.
+	 * 
+	 * @param absolutePath the path to the file
+	 * @return a stream of board position descriptions
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static Stream<String[][]> streamBoardDescriptions(String absolutePath) throws IOException {
+		DescriptionReader reader = new DescriptionReader(absolutePath);
+		Spliterator<String[][]> boards = Spliterators.spliteratorUnknownSize(reader,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(boards, false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Returns the board positions of the given file as a lazy stream of grids
+	 * with one char per cell, like streamBoardDescriptions() but without making
+	 * any strings. Boards are built from the grids with GridUtil.createBoard().
+	 * The stream must be closed to release the file. Read errors are thrown as
+	 * UncheckedIOException.
+	 * 
+	 * @param absolutePath the path to the file
+	 * @return a stream of board position grids
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static Stream<char[][]> streamBoardGrids(String absolutePath) throws IOException {
+		DescriptionReader reader = new DescriptionReader(absolutePath);
+		Spliterator<char[][]> grids = new Spliterators.AbstractSpliterator<char[][]>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super char[][]> action) {
+				char[][] grid = reader.nextGrid();
+				if (grid == null) {
+					return false;
+				}
+				action.accept(grid);
+				return true;
+			}
+		};
+		return StreamSupport.stream(grids, false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
 	/**
 	 * Reads a single board position description for a scanner and converts it into
 	 * a 2D array of strings.
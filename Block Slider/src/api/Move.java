@@ -20,15 +20,34 @@ public class Move
 	private Direction direction;
 
 	/**
-	 * Constructs a new move for a given block and direction.
+	 * the number of cells the block is moved
+	 */
+	private int cells;
+
+	/**
+	 * Constructs a new move of one cell for a given block and direction.
 	 * 
 	 * @param block     the given block
 	 * @param direction the given direction
 	 */
 	public Move(Block block, Direction direction)
+	{
+		this(block, direction, 1);
+	}
+
+	/**
+	 * Constructs a new move that slides a given block a number of cells in a
+	 * given direction.
+	 * 
+	 * @param block     the given block
+	 * @param direction the given direction
+	 * @param cells     the number of cells to slide
+	 */
+	public Move(Block block, Direction direction, int cells)
 	{
 		this.block = block;
 		this.direction = direction;
+		this.cells = cells;
 	}
 
 	/**
@@ -51,9 +70,20 @@ public class Move
 		return direction;
 	}
 
+	/**
+	 * Returns the number of cells moved.
+	 * 
+	 * @return the number of cells
+	 */
+	public int getCells()
+	{
+		return cells;
+	}
+
 	@Override
 	public String toString()
 	{
-		return "(" + block.getFirstRow() + ", " + block.getFirstCol() + ") one cell " + direction;
+		String distance = cells == 1 ? "one cell " : cells + " cells ";
+		return "(" + block.getFirstRow() + ", " + block.getFirstCol() + ") " + distance + direction;
 	}
 }
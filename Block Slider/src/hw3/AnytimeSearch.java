@@ -0,0 +1,275 @@
+package hw3;
+
+/**
+ * Depth-first branch and bound search, which finds some solution quickly and
+ * then keeps looking for shorter ones, so it has a useful answer whenever it is
+ * stopped. Moves are tried in order of the heuristic estimate of the position
+ * they lead to, which tends to find a first solution early. Once a solution is
+ * known, any position whose move count plus estimate reaches its length is cut
+ * off, and a position reached again in as many moves as before is skipped,
+ * using a StateStore whose value is the fewest moves the position has been
+ * reached in. If the search is not stopped it ends with a shortest solution.
+ */
+public class AnytimeSearch
+{
+	/**
+	 * Layout of the board being searched.
+	 */
+	private Layout layout;
+
+	/**
+	 * Largest number of moves in a solution.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Lower bound on the moves left from a position.
+	 */
+	private Heuristic heuristic;
+
+	/**
+	 * Fewest moves each position has been reached in.
+	 */
+	private StateStore table;
+
+	/**
+	 * Canonical form of positions, so equivalent positions are stored once.
+	 */
+	private Symmetry symmetry;
+
+	/**
+	 * Control polled while searching, or null to run to the end.
+	 */
+	private SearchControl control;
+
+	/**
+	 * Current block coordinates, changed in place as the search moves.
+	 */
+	private int[] positions;
+
+	/**
+	 * Cells covered by blocks in the current position.
+	 */
+	private boolean[] occupied;
+
+	/**
+	 * Moves made from the start to reach the current position.
+	 */
+	private int[] path;
+
+	/**
+	 * Generated moves for each depth of the current path.
+	 */
+	private int[][] moves;
+
+	/**
+	 * Estimates of the positions the moves at each depth lead to.
+	 */
+	private int[][] estimates;
+
+	/**
+	 * Scratch key of a position.
+	 */
+	private long[] key;
+
+	/**
+	 * Shortest solution found so far, or null.
+	 */
+	private int[] best;
+
+	/**
+	 * Number of positions expanded.
+	 */
+	private long expanded;
+
+	/**
+	 * Deepest move count reached.
+	 */
+	private int deepest;
+
+	/**
+	 * True once the control has stopped the search.
+	 */
+	private boolean stopped;
+
+	/**
+	 * Counters of the last search.
+	 */
+	private SearchStatistics statistics;
+
+	/**
+	 * Constructs a search over positions of the given layout.
+	 *
+	 * @param layout    layout of the board to search
+	 * @param maxDepth  maximum number of moves in a solution
+	 * @param heuristic lower bound on the moves left from a position
+	 * @param table     an empty store for keys of the layout
+	 * @param symmetry  canonical form of positions of the layout
+	 */
+	public AnytimeSearch(Layout layout, int maxDepth, Heuristic heuristic, StateStore table, Symmetry symmetry)
+	{
+		this.layout = layout;
+		this.maxDepth = maxDepth;
+		this.heuristic = heuristic;
+		this.table = table;
+		this.symmetry = symmetry;
+	}
+
+	/**
+	 * Sets the control that can stop the search and is told of its progress. Each
+	 * shorter solution found is passed to the control, where it can be read while
+	 * the search runs.
+	 *
+	 * @param control the control, or null to run to the end
+	 */
+	public void setControl(SearchControl control)
+	{
+		this.control = control;
+	}
+
+	/**
+	 * Returns the counters of the last search, or of the one running.
+	 *
+	 * @return statistics of the last search
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Searches for a shortest solution starting from the given block coordinates,
+	 * returning the shortest one found if the search is stopped first.
+	 *
+	 * @param start the variable coordinate of each block
+	 * @return the result of the search
+	 */
+	public SolverResult search(int[] start)
+	{
+		statistics = new SearchStatistics("anytime");
+		statistics.start();
+		SolverResult result = run(start);
+		statistics.finish(result);
+		return result;
+	}
+
+	/**
+	 * Runs the search, recording it in the statistics.
+	 */
+	private SolverResult run(int[] start)
+	{
+		positions = start.clone();
+		occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		layout.fillOccupied(positions, occupied);
+		path = new int[maxDepth + 1];
+		moves = new int[maxDepth + 1][layout.getMaxMoves()];
+		estimates = new int[maxDepth + 1][layout.getMaxMoves()];
+		key = new long[layout.getWords()];
+		best = null;
+		expanded = 0;
+		deepest = 0;
+		stopped = false;
+		if (control != null)
+		{
+			control.begin();
+		}
+
+		search(0, -1);
+		int depth = best == null ? deepest : best.length;
+		return new SolverResult(best, expanded, deepest, depth, !stopped);
+	}
+
+	/**
+	 * Depth-first search below the current position, reached after the given
+	 * number of moves.
+	 */
+	private void search(int depth, int lastMove)
+	{
+		deepest = Math.max(deepest, depth);
+		int bound = best == null ? maxDepth + 1 : best.length;
+		if (depth + heuristic.estimate(positions) >= bound)
+		{
+			return;
+		}
+
+		if (layout.isGoal(positions))
+		{
+			best = new int[depth];
+			System.arraycopy(path, 0, best, 0, depth);
+			if (control != null)
+			{
+				control.improve(new SolverResult(best.clone(), expanded, deepest, depth, false));
+			}
+			return;
+		}
+
+		symmetry.canonical(positions, key, 0);
+		int id = table.add(key, 0);
+		if (id < 0)
+		{
+			id = -id - 1;
+			if (table.getValue(id) <= depth)
+			{
+				statistics.duplicates(1);
+				return;
+			}
+		}
+		table.setValue(id, depth);
+
+		expanded++;
+		if (control != null && control.poll(depth, expanded))
+		{
+			stopped = true;
+			return;
+		}
+
+		int[] options = moves[depth];
+		int[] order = estimates[depth];
+		int count = layout.generateMoves(positions, occupied, options);
+		statistics.expanded(count);
+		statistics.frontier(depth + 1);
+		for (int i = 0; i < count; i++)
+		{
+			layout.apply(positions, null, options[i]);
+			order[i] = heuristic.estimate(positions);
+			layout.apply(positions, null, Layout.opposite(options[i]));
+		}
+		sort(options, order, count);
+
+		for (int i = 0; i < count && !stopped; i++)
+		{
+			// moving straight back only returns to the previous position
+			if (options[i] == Layout.opposite(lastMove))
+			{
+				continue;
+			}
+
+			path[depth] = options[i];
+			layout.apply(positions, occupied, options[i]);
+			search(depth + 1, options[i]);
+			layout.apply(positions, occupied, Layout.opposite(options[i]));
+		}
+	}
+
+	/**
+	 * Sorts the first count moves by increasing estimate, keeping the order of
+	 * moves with equal estimates.
+	 */
+	private static void sort(int[] options, int[] order, int count)
+	{
+		for (int i = 1; i < count; i++)
+		{
+			int move = options[i];
+			int estimate = order[i];
+			int j = i - 1;
+			while (j >= 0 && order[j] > estimate)
+			{
+				options[j + 1] = options[j];
+				order[j + 1] = order[j];
+				j--;
+			}
+			options[j + 1] = move;
+			order[j + 1] = estimate;
+		}
+	}
+}
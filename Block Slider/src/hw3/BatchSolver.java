@@ -0,0 +1,455 @@
+package hw3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import api.DescriptionUtil;
+
+/**
+ * Solves every puzzle of a file with all cores and writes one line of results
+ * per puzzle, for validating whole puzzle collections without the UI.
+ * <p>
+ * The work runs as a pipeline. A reader thread parses boards lazily from the
+ * file and puts them on a bounded queue. One solver thread per core takes the
+ * next board as soon as it is free, so a thread that draws easy puzzles keeps
+ * taking more while another works through a hard one, and finds a shortest
+ * solution with Solver.solveShortest(). Results go through a second queue to
+ * the calling thread, which writes them in puzzle order to a buffered CSV file,
+ * or a JSON Lines file if the output file name ends in .jsonl. Only a fixed
+ * window of boards is between the reader and the output at any time, so memory
+ * use does not grow with the size of the file and the reader waits when the
+ * solvers fall behind.
+ * <p>
+ * Each line has the puzzle index, its size and number of blocks, a status of
+ * solved, unsolved (no solution within the maximum number of moves), stopped
+ * (the time limit was reached) or error, the solution length, the positions
+ * expanded, the wall time of the solve in milliseconds and the solution, each
+ * move written as the block index followed by the first letter of the
+ * direction.
+ * <p>
+ * Usage: java hw3.BatchSolver &lt;puzzle file&gt; &lt;output file&gt; [max
+ * moves] [time limit seconds] [threads]
+ */
+public class BatchSolver
+{
+	/**
+	 * Largest number of moves searched for when none is given.
+	 */
+	private static final int DEFAULT_MAX_MOVES = 500;
+
+	/**
+	 * Capacity of the board queue for each solver thread.
+	 */
+	private static final int QUEUED_BOARDS_PER_THREAD = 4;
+
+	/**
+	 * Number of boards that may be read but not yet written, for each solver
+	 * thread.
+	 */
+	private static final int WINDOW_BOARDS_PER_THREAD = 64;
+
+	/**
+	 * Header line of a CSV output file.
+	 */
+	private static final String CSV_HEADER = "index,rows,cols,blocks,status,length,expanded,millis,solution";
+
+	/**
+	 * Time the output waits for a result before checking that the worker threads
+	 * are still running.
+	 */
+	private static final long POLL_MILLIS = 1000;
+
+	/**
+	 * Maximum number of moves of each search.
+	 */
+	private int maxMoves;
+
+	/**
+	 * Time each search may run for in milliseconds, or zero for no limit.
+	 */
+	private long timeoutMillis;
+
+	/**
+	 * Number of solver threads.
+	 */
+	private int threads;
+
+	/**
+	 * Error that stopped the reader, or null.
+	 */
+	private volatile Throwable readError;
+
+	/**
+	 * Constructs a batch solver.
+	 *
+	 * @param maxMoves      maximum number of moves of each search
+	 * @param timeoutMillis time each search may run for in milliseconds, or zero
+	 *                      for no limit
+	 * @param threads       number of solver threads
+	 */
+	public BatchSolver(int maxMoves, long timeoutMillis, int threads)
+	{
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException("At least one solver thread is needed");
+		}
+		this.maxMoves = maxMoves;
+		this.timeoutMillis = timeoutMillis;
+		this.threads = threads;
+	}
+
+	/**
+	 * Solves every puzzle of the given text file and writes the results to the
+	 * given output file, replacing its contents.
+	 *
+	 * @param puzzleFile the puzzle file, in the format read by DescriptionUtil
+	 * @param output     the CSV or JSON Lines file to write
+	 * @return the number of puzzles solved or attempted
+	 * @throws IOException          if the puzzle file cannot be read or the output
+	 *                              cannot be written
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public int run(String puzzleFile, Path output) throws IOException, InterruptedException
+	{
+		boolean json = output.getFileName().toString().endsWith(".jsonl");
+		Semaphore window = new Semaphore(threads * WINDOW_BOARDS_PER_THREAD);
+		BlockingQueue<Task> boards = new ArrayBlockingQueue<Task>(threads * QUEUED_BOARDS_PER_THREAD);
+		BlockingQueue<Task> results = new ArrayBlockingQueue<Task>(threads * WINDOW_BOARDS_PER_THREAD + threads);
+		Stream<char[][]> grids = DescriptionUtil.streamBoardGrids(puzzleFile);
+		readError = null;
+
+		ArrayList<Thread> workers = new ArrayList<Thread>();
+		workers.add(newThread("batch-reader", () -> read(grids, boards, window)));
+		for (int i = 0; i < threads; i++)
+		{
+			workers.add(newThread("batch-solver-" + i, () -> solve(boards, results)));
+		}
+		for (Thread worker : workers)
+		{
+			worker.start();
+		}
+
+		int written = 0;
+		try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8))
+		{
+			if (!json)
+			{
+				out.write(CSV_HEADER);
+				out.newLine();
+			}
+
+			// results arrive in the order they finish, and wait here for their turn
+			HashMap<Integer, Task> pending = new HashMap<Integer, Task>();
+			int running = threads;
+			while (running > 0)
+			{
+				Task task = results.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (task == null)
+				{
+					if (!isAnyAlive(workers) && results.isEmpty())
+					{
+						throw new IOException("The worker threads stopped before every puzzle of " + puzzleFile
+								+ " was written");
+					}
+					continue;
+				}
+				if (task.index < 0)
+				{
+					running--;
+					continue;
+				}
+				pending.put(task.index, task);
+				for (Task next = pending.remove(written); next != null; next = pending.remove(written))
+				{
+					out.write(json ? toJson(next) : toCsv(next));
+					out.newLine();
+					written++;
+					window.release();
+				}
+			}
+			if (!pending.isEmpty())
+			{
+				throw new IOException("Puzzle " + written + " of " + puzzleFile + " was lost by a worker thread");
+			}
+		}
+		finally
+		{
+			for (Thread worker : workers)
+			{
+				worker.interrupt();
+			}
+		}
+
+		if (readError != null)
+		{
+			throw new IOException("Cannot read puzzle " + written + " of " + puzzleFile, readError);
+		}
+		return written;
+	}
+
+	/**
+	 * Solves the puzzles of a file.
+	 * <p>
+	 * Usage: java hw3.BatchSolver games.txt results.csv 500 60
+	 *
+	 * @param args the puzzle file, the output file, and optionally the maximum
+	 *             number of moves, the time limit of each puzzle in seconds and
+	 *             the number of solver threads
+	 * @throws IOException          if either file cannot be read or written
+	 * @throws InterruptedException if interrupted while solving
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 2 || args.length > 5)
+		{
+			System.err.println("Usage: java hw3.BatchSolver <puzzle file> <output file> [max moves] "
+					+ "[time limit seconds] [threads]");
+			return;
+		}
+		int maxMoves = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_MOVES;
+		long timeoutMillis = args.length > 3 ? Long.parseLong(args[3]) * 1000 : 0;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		int count = new BatchSolver(maxMoves, timeoutMillis, threads).run(args[0], Paths.get(args[1]));
+		System.out.printf(Locale.ROOT, "Wrote %d results to %s in %.1f s with %d threads%n", count, args[1],
+				(System.nanoTime() - start) / 1e9, threads);
+	}
+
+	/**
+	 * Body of the reader thread. Builds each board of the file and queues it,
+	 * waiting for room in the window first, then queues one end marker for each
+	 * solver thread, even if reading failed.
+	 */
+	private void read(Stream<char[][]> grids, BlockingQueue<Task> boards, Semaphore window)
+	{
+		try
+		{
+			try
+			{
+				int index = 0;
+				Iterator<char[][]> it = grids.iterator();
+				while (it.hasNext())
+				{
+					Board board = GridUtil.createBoard(it.next());
+					window.acquire();
+					boards.put(new Task(index++, board));
+				}
+			}
+			catch (InterruptedException e)
+			{
+				// the output failed and the batch is being abandoned
+				return;
+			}
+			catch (Throwable e)
+			{
+				readError = e;
+			}
+			finally
+			{
+				grids.close();
+			}
+
+			for (int i = 0; i < threads; i++)
+			{
+				boards.put(new Task(-1, null));
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// the output failed and the batch is being abandoned
+		}
+	}
+
+	/**
+	 * Body of a solver thread. Solves queued boards until it takes an end marker,
+	 * which it passes on to the output. Anything thrown while solving a board,
+	 * including running out of memory, is recorded as the result of that board,
+	 * and the end marker is passed on however the thread stops.
+	 */
+	private void solve(BlockingQueue<Task> boards, BlockingQueue<Task> results)
+	{
+		try
+		{
+			Task task = boards.take();
+			while (task.index >= 0)
+			{
+				long start = System.nanoTime();
+				try
+				{
+					Solver solver = new Solver(maxMoves);
+					if (timeoutMillis > 0)
+					{
+						solver.setSearchControl(new SearchControl(timeoutMillis));
+					}
+					task.result = solver.solveShortest(task.board);
+				}
+				catch (Throwable e)
+				{
+					task.error = e;
+				}
+				task.nanos = System.nanoTime() - start;
+
+				results.put(task);
+				task = boards.take();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// the output failed and the batch is being abandoned
+		}
+		finally
+		{
+			// the queue has a free place for each end marker
+			results.offer(new Task(-1, null));
+		}
+	}
+
+	/**
+	 * Returns true if any of the given threads is still running.
+	 */
+	private static boolean isAnyAlive(ArrayList<Thread> workers)
+	{
+		for (Thread worker : workers)
+		{
+			if (worker.isAlive())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a daemon thread with the given name.
+	 */
+	private static Thread newThread(String name, Runnable body)
+	{
+		Thread thread = new Thread(body, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Returns the status of a solved task.
+	 */
+	private static String status(Task task)
+	{
+		if (task.error != null)
+		{
+			return "error";
+		}
+		if (task.result.isSolved())
+		{
+			return "solved";
+		}
+		return task.result.isComplete() ? "unsolved" : "stopped";
+	}
+
+	/**
+	 * Returns the moves of a solution as the block index and first letter of the
+	 * direction of each, separated by spaces, with the number of cells appended
+	 * to slides of more than one cell.
+	 */
+	private static String solution(SolverResult result)
+	{
+		StringBuilder buff = new StringBuilder();
+		for (int move : result.getMoves())
+		{
+			if (buff.length() > 0)
+			{
+				buff.append(' ');
+			}
+			buff.append(Layout.moveBlock(move)).append(Layout.moveDirection(move).name().charAt(0));
+			if (Layout.moveCells(move) > 1)
+			{
+				buff.append(Layout.moveCells(move));
+			}
+		}
+		return buff.toString();
+	}
+
+	/**
+	 * Returns the results of a task as a CSV line, leaving out the values that
+	 * are not known.
+	 */
+	private static String toCsv(Task task)
+	{
+		boolean solved = task.error == null && task.result.isSolved();
+		return String.format(Locale.ROOT, "%d,%d,%d,%d,%s,%s,%s,%.3f,%s", task.index, task.board.getRowSize(),
+				task.board.getColSize(), task.board.getBlocks().size(), status(task),
+				solved ? String.valueOf(task.result.getLength()) : "",
+				task.error == null ? String.valueOf(task.result.getNodesExpanded()) : "", task.nanos / 1e6,
+				solved ? solution(task.result) : "");
+	}
+
+	/**
+	 * Returns the results of a task as a JSON object on one line, with null for
+	 * the values that are not known.
+	 */
+	private static String toJson(Task task)
+	{
+		boolean solved = task.error == null && task.result.isSolved();
+		return String.format(Locale.ROOT,
+				"{\"index\": %d, \"rows\": %d, \"cols\": %d, \"blocks\": %d, \"status\": \"%s\", \"length\": %s, "
+						+ "\"expanded\": %s, \"millis\": %.3f, \"solution\": %s}",
+				task.index, task.board.getRowSize(), task.board.getColSize(), task.board.getBlocks().size(), status(task),
+				solved ? String.valueOf(task.result.getLength()) : "null",
+				task.error == null ? String.valueOf(task.result.getNodesExpanded()) : "null", task.nanos / 1e6,
+				solved ? "\"" + solution(task.result) + "\"" : "null");
+	}
+
+	/**
+	 * A board on its way through the pipeline, and the outcome of solving it. An
+	 * index of -1 marks the end of the boards.
+	 */
+	private static class Task
+	{
+		/**
+		 * Position of the board in the puzzle file.
+		 */
+		private int index;
+
+		/**
+		 * The board to solve.
+		 */
+		private Board board;
+
+		/**
+		 * Result of the search, or null before it finishes or if it failed.
+		 */
+		private SolverResult result;
+
+		/**
+		 * Error thrown by the search, or null.
+		 */
+		private Throwable error;
+
+		/**
+		 * Wall time of the search in nanoseconds.
+		 */
+		private long nanos;
+
+		/**
+		 * Constructs a task for the given board.
+		 */
+		private Task(int index, Board board)
+		{
+			this.index = index;
+			this.board = board;
+		}
+	}
+}
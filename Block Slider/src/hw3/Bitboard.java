@@ -0,0 +1,204 @@
+package hw3;
+
+/**
+ * The free cells of a board as bit masks, one set bit for each cell that is a
+ * floor or exit with no block over it. The cells are kept twice, row by row
+ * and column by column, so a run of free cells along either axis can be
+ * measured a word at a time with a count of trailing or leading zeros instead
+ * of a probe per cell. Rows and columns longer than 64 cells take several
+ * words.
+ */
+class Bitboard
+{
+	/**
+	 * Number of rows of the board.
+	 */
+	private int rows;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private int cols;
+
+	/**
+	 * Number of words per row.
+	 */
+	private int rowWords;
+
+	/**
+	 * Number of words per column.
+	 */
+	private int colWords;
+
+	/**
+	 * Free cells row by row, bit col of row row in word row * rowWords + col / 64.
+	 */
+	private long[] byRow;
+
+	/**
+	 * Free cells column by column, bit row of column col in word col * colWords +
+	 * row / 64.
+	 */
+	private long[] byCol;
+
+	/**
+	 * Constructs a bitboard of the given size with no free cells.
+	 *
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 */
+	Bitboard(int rows, int cols)
+	{
+		this.rows = rows;
+		this.cols = cols;
+		rowWords = (cols + 63) >>> 6;
+		colWords = (rows + 63) >>> 6;
+		byRow = new long[rows * rowWords];
+		byCol = new long[cols * colWords];
+	}
+
+	/**
+	 * Marks the given cell as free or not.
+	 *
+	 * @param row  row of the cell
+	 * @param col  column of the cell
+	 * @param free true if the cell is free
+	 */
+	void setFree(int row, int col, boolean free)
+	{
+		int r = row * rowWords + (col >>> 6);
+		int c = col * colWords + (row >>> 6);
+		if (free)
+		{
+			byRow[r] |= 1L << col;
+			byCol[c] |= 1L << row;
+		}
+		else
+		{
+			byRow[r] &= ~(1L << col);
+			byCol[c] &= ~(1L << row);
+		}
+	}
+
+	/**
+	 * Returns true if the given cell is on the board and free.
+	 *
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @return true if the cell is free
+	 */
+	boolean isFree(int row, int col)
+	{
+		return row >= 0 && row < rows && col >= 0 && col < cols
+				&& (byRow[row * rowWords + (col >>> 6)] & (1L << col)) != 0;
+	}
+
+	/**
+	 * Returns the number of free cells in a row starting at the given cell and
+	 * going right.
+	 *
+	 * @param row row of the cells
+	 * @param col column of the first cell
+	 * @return length of the run of free cells, 0 if the first is not free
+	 */
+	int freeRight(int row, int col)
+	{
+		if (row < 0 || row >= rows || col < 0)
+		{
+			return 0;
+		}
+		return runUp(byRow, row * rowWords, col, cols);
+	}
+
+	/**
+	 * Returns the number of free cells in a row starting at the given cell and
+	 * going left.
+	 *
+	 * @param row row of the cells
+	 * @param col column of the first cell
+	 * @return length of the run of free cells, 0 if the first is not free
+	 */
+	int freeLeft(int row, int col)
+	{
+		if (row < 0 || row >= rows || col >= cols)
+		{
+			return 0;
+		}
+		return runDown(byRow, row * rowWords, col);
+	}
+
+	/**
+	 * Returns the number of free cells in a column starting at the given cell and
+	 * going down.
+	 *
+	 * @param row row of the first cell
+	 * @param col column of the cells
+	 * @return length of the run of free cells, 0 if the first is not free
+	 */
+	int freeDown(int row, int col)
+	{
+		if (col < 0 || col >= cols || row < 0)
+		{
+			return 0;
+		}
+		return runUp(byCol, col * colWords, row, rows);
+	}
+
+	/**
+	 * Returns the number of free cells in a column starting at the given cell and
+	 * going up.
+	 *
+	 * @param row row of the first cell
+	 * @param col column of the cells
+	 * @return length of the run of free cells, 0 if the first is not free
+	 */
+	int freeUp(int row, int col)
+	{
+		if (col < 0 || col >= cols || row >= rows)
+		{
+			return 0;
+		}
+		return runDown(byCol, col * colWords, row);
+	}
+
+	/**
+	 * Counts the set bits of a line starting at bit from and going up, stopping
+	 * at the first clear bit or at size.
+	 */
+	private static int runUp(long[] bits, int base, int from, int size)
+	{
+		int i = from;
+		while (i < size)
+		{
+			int offset = i & 63;
+			// the shift brings in zeros, so the run stops at the end of the word
+			int run = Long.numberOfTrailingZeros(~(bits[base + (i >>> 6)] >>> offset));
+			i += run;
+			if (run < 64 - offset)
+			{
+				break;
+			}
+		}
+		return Math.min(i, size) - from;
+	}
+
+	/**
+	 * Counts the set bits of a line starting at bit from and going down, stopping
+	 * at the first clear bit or at bit 0.
+	 */
+	private static int runDown(long[] bits, int base, int from)
+	{
+		int i = from;
+		while (i >= 0)
+		{
+			int offset = i & 63;
+			int run = Long.numberOfLeadingZeros(~(bits[base + (i >>> 6)] << (63 - offset)));
+			i -= run;
+			if (run < offset + 1)
+			{
+				break;
+			}
+		}
+		return from - Math.max(i, -1);
+	}
+}
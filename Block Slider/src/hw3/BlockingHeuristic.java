@@ -0,0 +1,170 @@
+package hw3;
+
+import java.util.Arrays;
+
+/**
+ * A lower bound on the number of moves needed to solve a position. Only blocks
+ * whose lane runs through an exit can finish the puzzle. For each of them and
+ * each exit on its lane the estimate is the distance the block still has to
+ * slide plus one move for every other block standing in the cells it has to
+ * slide over, and the heuristic is the smallest of these. It never overestimates, since each of those blockers
+ * has to move at least once before the block can pass.
+ */
+public class BlockingHeuristic implements Heuristic
+{
+	/**
+	 * Layout of the board.
+	 */
+	private Layout layout;
+
+	/**
+	 * Indexes of the blocks that can end on an exit, once for each exit they can
+	 * end on.
+	 */
+	private int[] candidates;
+
+	/**
+	 * For each candidate, the coordinate at which its end is on the exit.
+	 */
+	private int[] targets;
+
+	/**
+	 * Constructs the heuristic for the given layout.
+	 *
+	 * @param layout layout of the board
+	 */
+	public BlockingHeuristic(Layout layout)
+	{
+		this.layout = layout;
+		int n = layout.getBlockCount();
+		int[] blocks = new int[n * layout.getExitCount()];
+		int[] goals = new int[blocks.length];
+		int count = 0;
+
+		for (int k = 0; k < n; k++)
+		{
+			for (int e = 0; e < layout.getExitCount(); e++)
+			{
+				int target;
+				if (layout.isHorizontal(k) && layout.getLane(k) == layout.getExitRow(e))
+				{
+					target = layout.getExitCol(e) - layout.getLength(k) + 1;
+				}
+				else if (!layout.isHorizontal(k) && layout.getLane(k) == layout.getExitCol(e))
+				{
+					target = layout.getExitRow(e) - layout.getLength(k) + 1;
+				}
+				else
+				{
+					continue;
+				}
+
+				if (target >= 0)
+				{
+					blocks[count] = k;
+					goals[count] = target;
+					count++;
+				}
+			}
+		}
+
+		candidates = Arrays.copyOf(blocks, count);
+		targets = Arrays.copyOf(goals, count);
+	}
+
+	/**
+	 * Returns the indexes of the blocks whose lane runs through an exit, the only
+	 * blocks that can solve the puzzle.
+	 *
+	 * @return indexes of the blocks that can end on an exit, each listed once
+	 */
+	public int[] getCandidates()
+	{
+		int[] blocks = new int[candidates.length];
+		int count = 0;
+		for (int c = 0; c < candidates.length; c++)
+		{
+			if (count == 0 || blocks[count - 1] != candidates[c])
+			{
+				blocks[count++] = candidates[c];
+			}
+		}
+		return Arrays.copyOf(blocks, count);
+	}
+
+	@Override
+	public int estimate(int[] positions)
+	{
+		int best = UNSOLVABLE;
+		for (int c = 0; c < candidates.length; c++)
+		{
+			int k = candidates[c];
+			int distance = Math.abs(positions[k] - targets[c]);
+			if (distance >= best)
+			{
+				continue;
+			}
+
+			// the cells the block has to slide over to reach its target
+			int from;
+			int to;
+			if (targets[c] > positions[k])
+			{
+				from = positions[k] + layout.getLength(k);
+				to = targets[c] + layout.getLength(k) - 1;
+			}
+			else
+			{
+				from = targets[c];
+				to = positions[k] - 1;
+			}
+
+			int cost = distance + blockers(positions, k, from, to);
+			best = Math.min(best, cost);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the number of blocks other than k covering any cell between from
+	 * and to on the lane of k, or UNSOLVABLE if one of those cells is a wall.
+	 */
+	private int blockers(int[] positions, int k, int from, int to)
+	{
+		boolean horizontal = layout.isHorizontal(k);
+		int lane = layout.getLane(k);
+
+		for (int i = from; i <= to; i++)
+		{
+			if (horizontal ? !layout.isOpen(lane, i) : !layout.isOpen(i, lane))
+			{
+				return UNSOLVABLE;
+			}
+		}
+
+		int count = 0;
+		for (int j = 0; j < positions.length; j++)
+		{
+			if (j == k)
+			{
+				continue;
+			}
+
+			int start = positions[j];
+			int end = start + layout.getLength(j) - 1;
+			if (layout.isHorizontal(j) == horizontal)
+			{
+				// same direction, only blocks sharing the lane can be in the way
+				if (layout.getLane(j) == lane && start <= to && end >= from)
+				{
+					count++;
+				}
+			}
+			else if (layout.getLane(j) >= from && layout.getLane(j) <= to && start <= lane && end >= lane)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+}
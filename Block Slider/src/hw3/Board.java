@@ -4,6 +4,8 @@ import static api.Direction.*;
 import static api.Orientation.*;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Random;
 
 import api.Cell;
 import api.CellType;
@@ -28,10 +30,16 @@ public class Board
 	private ArrayList<Block> blocks;
 
 	/**
-	 * A list of moves that have been made in order to get to the current position
-	 * of blocks on the board.
+	 * The moves that have been made in order to get to the current position of
+	 * blocks on the board, by block index and direction.
 	 */
-	private ArrayList<Move> moveHistory;
+	private MoveLog moveLog;
+
+	/**
+	 * Moves taken back by undoMove() that redoMove() can make again, the next one
+	 * to redo last. Cleared by any new move and by reset().
+	 */
+	private MoveLog redoLog;
 
 	/**
 	 * Variable to hold the grabbed block.
@@ -53,10 +61,45 @@ public class Board
 	 */
 	private boolean isGameEnded;
 
-	/*
-	 * A list of all legal moves for a block, from its fixed position.
+	/**
+	 * Cells that are floors or exits with no block over them, as bit masks by
+	 * row and by column, kept up to date on every move and reset.
+	 */
+	private Bitboard free;
+
+	/**
+	 * Seed for the Zobrist keys, fixed so that the same position of the same
+	 * layout has the same fingerprint in every run.
+	 */
+	private static final long ZOBRIST_SEED = 0x2545F4914F6CDD1DL;
+
+	/**
+	 * Random keys for each block (first index) at each value of its variable
+	 * coordinate (second index), the first column of a horizontal block or the
+	 * first row of a vertical block.
+	 */
+	private long[][] zobrist;
+
+	/**
+	 * Index of each block in the list of blocks.
+	 */
+	private IdentityHashMap<Block, Integer> blockIndex;
+
+	/**
+	 * Index of the grabbed block in the list of blocks.
 	 */
-	private ArrayList<Move> allPossibleMoves;
+	private int grabbedIndex;
+
+	/**
+	 * Zobrist hash of the current position, the exclusive or of the keys of every
+	 * block at its current coordinate.
+	 */
+	private long fingerprint;
+
+	/**
+	 * Zobrist hash of the starting position.
+	 */
+	private long initialFingerprint;
 
 	/**
 	 * Constructs a new board from a given 2D array of cells and list of blocks. The
@@ -73,10 +116,10 @@ public class Board
 		this.blocks = blocks;
 		this.grid = grid;
 		isGameEnded = false;
-		moveHistory = new ArrayList<Move>();
+		moveLog = new MoveLog();
+		redoLog = new MoveLog();
 		grabbedBlock = null;
 		grabbedCell = null;
-		allPossibleMoves = new ArrayList<Move>();
 		totMoves = 0;
 
 		int k = 0;
@@ -114,6 +157,26 @@ public class Board
 				}
 			}
 		}
+
+		free = new Bitboard(grid.length, grid[0].length);
+		fillBitboard();
+
+		isGameEnded = anyBlockOnExit();
+
+		Random rand = new Random(ZOBRIST_SEED);
+		zobrist = new long[blocks.size()][Math.max(grid.length, grid[0].length)];
+		blockIndex = new IdentityHashMap<Block, Integer>();
+		fingerprint = 0;
+		for (int b = 0; b < blocks.size(); b++)
+		{
+			for (int p = 0; p < zobrist[b].length; p++)
+			{
+				zobrist[b][p] = rand.nextLong();
+			}
+			blockIndex.put(blocks.get(b), b);
+			fingerprint ^= zobrist[b][coordinate(blocks.get(b))];
+		}
+		initialFingerprint = fingerprint;
 	}
 
 	/**
@@ -144,6 +207,7 @@ public class Board
 		{
 			grabbedBlock = grid[row][col].getBlock();
 			grabbedCell = grid[row][col];
+			grabbedIndex = blockIndex.get(grabbedBlock);
 		}
 	}
 
@@ -187,22 +251,8 @@ public class Board
 	public boolean canPlaceBlock(int row, int col)
 
 	{
-		if (!isGameOver())
-		{
-			// checking for walls and blocks
-			if (grid[row][col].isWall() || grid[row][col].hasBlock()) //row >= grid.length || col >= grid[0].length || col <= 0 || row <= 0
-			{
-				return false;
-			}
-
-			// if its an exit or wall or theres no blocks, return true
-			else if ((grid[row][col].isFloor() || grid[row][col].isExit()) && !grid[row][col].hasBlock())
-			{
-				return true;
-			}
-		}
-
-		return false;
+		// a free cell is a floor or exit with no block over it
+		return !isGameOver() && free.isFree(row, col);
 	}
 
 	/**
@@ -212,7 +262,7 @@ public class Board
 	 */
 	public int getMoveCount()
 	{
-		return moveHistory.size();
+		return moveLog.size();
 	}
 
 	/**
@@ -258,51 +308,39 @@ public class Board
 	}
 
 	/**
-	 * Returns true if the player has completed the puzzle by positioning a block
-	 * over an exit, false otherwise.
+	 * Returns the exit cells of the board in a new list. Win detection does not
+	 * need the list, since whether a block is on an exit is a single grid lookup
+	 * at its last cell.
 	 * 
-	 * @return true if the game is over
+	 * @return a list of the exits, in row-major order
 	 */
-	public boolean isGameOver()
+	public ArrayList<Cell> getExits()
 	{
-		int exitCol = 0;
-		int exitRow = 0;
-
-		// get the exit row and column.
+		ArrayList<Cell> exits = new ArrayList<Cell>();
 		for (int i = 0; i < grid.length; i++)
 		{
-			for (int j = 0; j < grid[0].length; j++)
+			for (int j = 0; j < grid[i].length; j++)
 			{
 				if (grid[i][j].isExit())
 				{
-					exitRow = i;
-					exitCol = j;
-				}
-			}
-		}
-
-		// if the end of the block is coinciding with the start of the exit game over is true.
-		for (int k = 0; k < blocks.size(); k++)
-		{
-			Block block = blocks.get(k);
-
-			if (block.getOrientation() == HORIZONTAL)
-			{
-				if (block.getFirstRow() == exitRow && block.getFirstCol() + block.getLength() - 1 == exitCol)
-				{
-					isGameEnded = true;
-				}
-			}
-
-			else
-			{
-				if (block.getFirstRow() + block.getLength() - 1 == exitRow && block.getFirstCol() == exitCol)
-				{
-					isGameEnded = true;
+					exits.add(grid[i][j]);
 				}
 			}
 		}
+		return exits;
+	}
 
+	/**
+	 * Returns true if the player has completed the puzzle by positioning a block
+	 * over an exit, false otherwise. A block is over an exit when its last cell,
+	 * the rightmost cell of a horizontal block or the bottom cell of a vertical
+	 * block, is on any of the exits. The answer is kept up to date as blocks move,
+	 * so this takes constant time.
+	 * 
+	 * @return true if the game is over
+	 */
+	public boolean isGameOver()
+	{
 		return isGameEnded;
 	}
 
@@ -327,7 +365,7 @@ public class Board
 	 * <li>Moves the currently grabbed cell by one cell in the same moved direction.
 	 * The purpose of this is to make the currently grabbed cell move with the block
 	 * as it is being dragged by the user.</li>
-	 * <li>Adds the move to the end of the moveHistory list.</li>
+	 * <li>Adds the move to the end of the move log.</li>
 	 * <li>Increment the count of total moves made in the game.</li>
 	 * </ul>
 	 * 
@@ -349,9 +387,11 @@ public class Board
 						{
 							if (canPlaceBlock(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol() + length))
 							{
-								// add the move to moveHistory.
-								Move moveDone = new Move(grabbedBlock, dir);
-								moveHistory.add(moveDone);
+								// add the move to the move log.
+								record(dir);
+
+								// update the fingerprint for the block's new coordinate.
+								moveFingerprint(grabbedBlock.getFirstCol(), grabbedBlock.getFirstCol() + 1);
 
 								// call its respective move method.
 								grabbedBlock.move(RIGHT);
@@ -361,12 +401,14 @@ public class Board
 
 								//move the entire block corresponding to direction
 								grid[grabbedBlock.getFirstRow()][grabbedBlock.getFirstCol() + length - 1].setBlock(grabbedBlock);
+								free.setFree(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol() + length - 1, false);
 
 								// now set the initial positions occupied by it to null.
 								grid[grabbedBlock.getFirstRow()][grabbedBlock.getFirstCol() - 1].clearBlock();
+								free.setFree(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol() - 1, true);
 
 								//check whether it reached the exit and ended the game.
-								isGameOver();
+								isGameEnded = isOnExit(grabbedBlock);
 								
 								totMoves++;
 							}
@@ -377,9 +419,11 @@ public class Board
 						{
 							if (canPlaceBlock(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol() - 1))
 							{
-								// add the move to moveHistory.
-								Move moveDone = new Move(grabbedBlock, dir);
-								moveHistory.add(moveDone);
+								// add the move to the move log.
+								record(dir);
+
+								// update the fingerprint for the block's new coordinate.
+								moveFingerprint(grabbedBlock.getFirstCol(), grabbedBlock.getFirstCol() - 1);
 
 								// call its respective move method.
 								grabbedBlock.move(LEFT);
@@ -389,12 +433,14 @@ public class Board
 
 								//move the entire block corresponding to direction
 								grid[grabbedBlock.getFirstRow()][grabbedBlock.getFirstCol()].setBlock(grabbedBlock);
+								free.setFree(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol(), false);
 
 								// now set the initial positions occupied by it to null.
 								grid[grabbedBlock.getFirstRow()][grabbedBlock.getFirstCol() + grabbedBlock.getLength()].clearBlock();
+								free.setFree(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol() + grabbedBlock.getLength(), true);
 
 								//check whether it reached the exit and ended the game.
-								isGameOver();
+								isGameEnded = isOnExit(grabbedBlock);
 								
 								totMoves++;
 							}
@@ -410,9 +456,11 @@ public class Board
 						{
 							if (canPlaceBlock(grabbedBlock.getFirstRow() - 1, grabbedBlock.getFirstCol()))
 							{
-								// add the move to moveHistory.
-								Move moveDone = new Move(grabbedBlock, dir);
-								moveHistory.add(moveDone);
+								// add the move to the move log.
+								record(dir);
+
+								// update the fingerprint for the block's new coordinate.
+								moveFingerprint(grabbedBlock.getFirstRow(), grabbedBlock.getFirstRow() - 1);
 
 								// call its respective move method.
 								grabbedBlock.move(UP);
@@ -422,12 +470,14 @@ public class Board
 
 								//move the entire block corresponding to direction
 								grid[grabbedBlock.getFirstRow()][grabbedBlock.getFirstCol()].setBlock(grabbedBlock);
+								free.setFree(grabbedBlock.getFirstRow(), grabbedBlock.getFirstCol(), false);
 
 								// now set the initial positions occupied by it to null.
 								grid[grabbedBlock.getFirstRow() + grabbedBlock.getLength()][grabbedBlock.getFirstCol()].clearBlock();
+								free.setFree(grabbedBlock.getFirstRow() + grabbedBlock.getLength(), grabbedBlock.getFirstCol(), true);
 
 								//check whether it reached the exit and ended the game.
-								isGameOver();
+								isGameEnded = isOnExit(grabbedBlock);
 								
 								totMoves++;
 							}
@@ -437,9 +487,11 @@ public class Board
 						{
 							if (canPlaceBlock(grabbedBlock.getFirstRow() + length, grabbedBlock.getFirstCol()))
 							{
-								// add the move to moveHistory.
-								Move moveDone = new Move(grabbedBlock, dir);
-								moveHistory.add(moveDone);
+								// add the move to the move log.
+								record(dir);
+
+								// update the fingerprint for the block's new coordinate.
+								moveFingerprint(grabbedBlock.getFirstRow(), grabbedBlock.getFirstRow() + 1);
 
 								// call its respective move method.
 								grabbedBlock.move(DOWN);
@@ -449,12 +501,14 @@ public class Board
 
 								//move the entire block corresponding to direction
 								grid[grabbedBlock.getFirstRow() + grabbedBlock.getLength() - 1][grabbedBlock.getFirstCol()].setBlock(grabbedBlock);
+								free.setFree(grabbedBlock.getFirstRow() + grabbedBlock.getLength() - 1, grabbedBlock.getFirstCol(), false);
 
 								// now set the initial positions occupied by it to null.
 								grid[grabbedBlock.getFirstRow() - 1][grabbedBlock.getFirstCol()].clearBlock();
+								free.setFree(grabbedBlock.getFirstRow() - 1, grabbedBlock.getFirstCol(), true);
 
 								//check whether it reached the exit and ended the game.
-								isGameOver();
+								isGameEnded = isOnExit(grabbedBlock);
 								
 								totMoves++;
 							}
@@ -536,164 +590,427 @@ public class Board
 			}
 		}
 		
+		fillBitboard();
+
 		totMoves = 0;
 
-		moveHistory.clear();
+		moveLog.clear();
 
-		isGameEnded = false;
+		redoLog.clear();
+
+		fingerprint = initialFingerprint;
+
+		isGameEnded = anyBlockOnExit();
 	}
 
 	/**
 	 * Returns a list of all legal moves that can be made by any block on the
-	 * current board. If the game is over there are no legal moves.
+	 * current board. If the game is over there are no legal moves. The list is
+	 * new on every call; search code should use generateMoves() instead.
 	 * 
 	 * @return a list of legal moves
 	 */
 	public ArrayList<Move> getAllPossibleMoves()
 	{
+		int[] encoded = new int[Layout.maxMoves(blocks.size())];
+		int count = generateMoves(encoded);
+		ArrayList<Move> moves = new ArrayList<Move>(count);
+
+		for (int i = 0; i < count; i++)
+		{
+			moves.add(new Move(blocks.get(Layout.moveBlock(encoded[i])), Layout.moveDirection(encoded[i])));
+		}
+
+		return moves;
+	}
+
+	/**
+	 * Writes every legal single cell move of the current board into dest, encoded
+	 * as by Layout.encodeMove() with the index of the block in getBlocks(). The
+	 * moves are in the same order as getAllPossibleMoves(): blocks in order, RIGHT
+	 * before LEFT for horizontal blocks and UP before DOWN for vertical blocks.
+	 * Nothing is allocated, so the same buffer can be reused on every call. If
+	 * the game is over there are no legal moves.
+	 * 
+	 * @param dest array to write the encoded moves to, see Layout.maxMoves()
+	 * @return the number of moves written
+	 */
+	public int generateMoves(int[] dest)
+	{
+		int count = 0;
+
 		if (!isGameOver())
 		{
 			for (int i = 0; i < blocks.size(); i++)
 			{
 				Block moveBlock = blocks.get(i);
+				int row = moveBlock.getFirstRow();
+				int col = moveBlock.getFirstCol();
 
 				if (moveBlock.getOrientation() == HORIZONTAL)
 				{
-					if (canPlaceBlock(moveBlock.getFirstRow(), moveBlock.getFirstCol() + moveBlock.getLength()))
+					if (free.isFree(row, col + moveBlock.getLength()))
 					{
-						if (!isGameOver())
-						{
-							Move possibleRight = new Move(moveBlock, RIGHT);
-							allPossibleMoves.add(possibleRight);
-						}
+						dest[count++] = Layout.encodeMove(i, RIGHT);
 					}
 
-					if (canPlaceBlock(moveBlock.getFirstRow(), moveBlock.getFirstCol() - 1))
+					if (free.isFree(row, col - 1))
 					{
-						if (!isGameOver())
-						{
-							Move possibleLeft = new Move(moveBlock, LEFT);
-							allPossibleMoves.add(possibleLeft);
-						}
+						dest[count++] = Layout.encodeMove(i, LEFT);
 					}
-
 				}
 
 				else if (moveBlock.getOrientation() == VERTICAL)
 				{
-					if (canPlaceBlock(moveBlock.getFirstRow() - 1, moveBlock.getFirstCol()))
+					if (free.isFree(row - 1, col))
 					{
-						if (!isGameOver())
-						{
-							Move possibleUp = new Move(moveBlock, UP);
-							allPossibleMoves.add(possibleUp);
-						}
+						dest[count++] = Layout.encodeMove(i, UP);
+					}
 
+					if (free.isFree(row + moveBlock.getLength(), col))
+					{
+						dest[count++] = Layout.encodeMove(i, DOWN);
 					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns a list of all legal slides that can be made by any block on the
+	 * current board. A slide moves one block any number of cells in one direction,
+	 * and there is one slide for every distance the block can travel. If the game
+	 * is over there are no legal slides.
+	 * 
+	 * @return a list of legal slides
+	 */
+	public ArrayList<Move> getAllPossibleSlides()
+	{
+		ArrayList<Move> slides = new ArrayList<Move>();
 
-					if (canPlaceBlock(moveBlock.getFirstRow() + moveBlock.getLength(), moveBlock.getFirstCol()))
+		if (!isGameOver())
+		{
+			for (int i = 0; i < blocks.size(); i++)
+			{
+				Block block = blocks.get(i);
+				int row = block.getFirstRow();
+				int col = block.getFirstCol();
+				int length = block.getLength();
+
+				// the runs of free cells on either side of the block are how far it
+				// can slide each way
+				if (block.getOrientation() == HORIZONTAL)
+				{
+					for (int c = 1, range = free.freeRight(row, col + length); c <= range; c++)
 					{
-						if (!isGameOver())
-						{
-							Move possibleDown = new Move(moveBlock, DOWN);
-							allPossibleMoves.add(possibleDown);
-						}
+						slides.add(new Move(block, RIGHT, c));
+					}
+
+					for (int c = 1, range = free.freeLeft(row, col - 1); c <= range; c++)
+					{
+						slides.add(new Move(block, LEFT, c));
+					}
+				}
+
+				else if (block.getOrientation() == VERTICAL)
+				{
+					for (int c = 1, range = free.freeUp(row - 1, col); c <= range; c++)
+					{
+						slides.add(new Move(block, UP, c));
+					}
+
+					for (int c = 1, range = free.freeDown(row + length, col); c <= range; c++)
+					{
+						slides.add(new Move(block, DOWN, c));
 					}
 				}
 			}
 		}
 
-		return allPossibleMoves;
+		return slides;
+	}
+
+	/**
+	 * Slides the block of the given move by its number of cells in its direction.
+	 * The block is grabbed and moved one cell at a time with moveGrabbedBlock(), so
+	 * each cell is recorded in the move history and can be undone. The slide
+	 * stops early if the block can go no further or the game ends, which the
+	 * caller can tell from the number of cells returned. Whatever block was
+	 * grabbed before is grabbed again afterwards, at the same cell of the block,
+	 * and if none was the slid block is released.
+	 * 
+	 * @param slide the slide to make, usually one from getAllPossibleSlides()
+	 * @return the number of cells the block moved
+	 */
+	public int applySlide(Move slide)
+	{
+		Block previous = grabbedBlock;
+		int rowOffset = previous == null ? 0 : grabbedCell.getRow() - previous.getFirstRow();
+		int colOffset = previous == null ? 0 : grabbedCell.getCol() - previous.getFirstCol();
+		int movesBefore = totMoves;
+
+		Block block = slide.getBlock();
+		grabBlockAtCell(block.getFirstRow(), block.getFirstCol());
+
+		for (int i = 0; i < slide.getCells() && totMoves - movesBefore == i; i++)
+		{
+			moveGrabbedBlock(slide.getDirection());
+		}
+
+		releaseBlock();
+		if (previous != null)
+		{
+			// the previous block may be the one that slid, so find the cell anew
+			grabBlockAtCell(previous.getFirstRow() + rowOffset, previous.getFirstCol() + colOffset);
+		}
+		return totMoves - movesBefore;
 	}
 
 	/**
 	 * Gets the list of all moves performed to get to the current position on the
-	 * board.
+	 * board. The list is built from the move log on every call.
 	 * 
 	 * @return a list of moves performed to get to the current position
 	 */
 	public ArrayList<Move> getMoveHistory()
 	{
-		return moveHistory;
+		ArrayList<Move> history = new ArrayList<Move>(moveLog.size());
+
+		for (int i = 0; i < moveLog.getRunCount(); i++)
+		{
+			int run = moveLog.getRun(i);
+			Move moveDone = new Move(blocks.get(Layout.moveBlock(run)), Layout.moveDirection(run));
+			for (int c = 0; c < Layout.moveCells(run); c++)
+			{
+				history.add(moveDone);
+			}
+		}
+
+		return history;
+	}
+
+	/**
+	 * Returns the log of the moves performed to get to the current position, which
+	 * keeps each run of moves of one block in one direction as a single int. It
+	 * can be written to a file and replayed onto a fresh board of the same puzzle.
+	 * The log is kept up to date by the board and must not be changed.
+	 * 
+	 * @return the move log of the board
+	 */
+	public MoveLog getMoveLog()
+	{
+		return moveLog;
 	}
 
 	/**
 	 * EXTRA CREDIT 5 POINTS
 	 * <p>
-	 * This method is only used by the Solver.
-	 * <p>
-	 * Undo the previous move. The method gets the last move on the moveHistory list
-	 * and performs the opposite actions of that move, which are the following:
-	 * <ul>
-	 * <li>grabs the moved block and calls moveGrabbedBlock passing the opposite
-	 * direction</li>
-	 * <li>decreases the total move count by two to undo the effect of calling
-	 * moveGrabbedBlock twice</li>
-	 * <li>if required, sets is game over to false</li>
-	 * <li>removes the move from the moveHistory list</li>
-	 * </ul>
-	 * If the moveHistory list is empty this method does nothing.
+	 * Undo the previous move. The block of the last move in the move log is moved
+	 * back one cell, whichever block is grabbed, and the move is removed from the
+	 * log and kept so that redoMove() can make it again. The total move
+	 * count goes down by one and the game is no longer over. Only the two cells
+	 * the block moves between are touched, so this takes constant time. If the
+	 * move log is empty this method does nothing.
 	 */
 	public void undoMove()
 	{
+		if (moveLog.size() > 0)
+		{
+			int lastMove = moveLog.removeLast();
+			shiftBlock(Layout.moveBlock(lastMove), opposite(Layout.moveDirection(lastMove)));
+			redoLog.append(Layout.moveBlock(lastMove), Layout.moveDirection(lastMove));
+			totMoves--;
+		}
+	}
 
-		if (isGameOver())
+	/**
+	 * Undoes the given number of moves, or every move if there are fewer.
+	 * 
+	 * @param count number of moves to undo
+	 */
+	public void undoMoves(int count)
+	{
+		for (int i = 0; i < count && moveLog.size() > 0; i++)
 		{
-			isGameEnded = false;
+			undoMove();
 		}
+	}
 
-		if (moveHistory.size() > 0)
+	/**
+	 * Makes again the move most recently taken back by undoMove(), adding it back
+	 * to the move log and counting it, in constant time. Moves can be
+	 * redone until a new move is made or the board is reset. If there is no move
+	 * to redo this method does nothing.
+	 */
+	public void redoMove()
+	{
+		if (redoLog.size() > 0)
 		{
-			if (moveHistory.size() == 1)
-			{
-				reset();
-			}
+			int nextMove = redoLog.removeLast();
+			shiftBlock(Layout.moveBlock(nextMove), Layout.moveDirection(nextMove));
+			moveLog.append(Layout.moveBlock(nextMove), Layout.moveDirection(nextMove));
+			totMoves++;
+		}
+	}
 
-			else
-			{
-				if (grabbedBlock.getOrientation() == HORIZONTAL)
-				{
-					Move earlierMove = moveHistory.get(moveHistory.size() - 1);
+	/**
+	 * Returns true if there is a move that redoMove() can make again.
+	 * 
+	 * @return true if a move can be redone
+	 */
+	public boolean canRedo()
+	{
+		return redoLog.size() > 0;
+	}
 
-					if (earlierMove.getDirection() == RIGHT)
-					{
-						moveGrabbedBlock(LEFT);
-						moveHistory.remove(moveHistory.size() - 1);
-						moveHistory.remove(moveHistory.size() - 2);
-						totMoves-=2;
-					}
+	/**
+	 * Returns a 64 bit Zobrist hash of the current position of the blocks. Two
+	 * positions of the same board have the same fingerprint if their blocks are
+	 * in the same place, and different positions collide only with negligible
+	 * probability. The fingerprint is kept up to date on every move, undo and
+	 * reset, so reading it costs nothing.
+	 * 
+	 * @return fingerprint of the current position
+	 */
+	public long fingerprint()
+	{
+		return fingerprint;
+	}
 
-					else if (earlierMove.getDirection() == LEFT)
-					{
-						moveGrabbedBlock(RIGHT);
-						moveHistory.remove(moveHistory.size() - 1);
-						moveHistory.remove(moveHistory.size() - 2);
-						totMoves-=2;
-					}
-				}
+	/**
+	 * Adds a new move of the grabbed block to the move log. A new move replaces
+	 * whatever was left to redo.
+	 */
+	private void record(Direction dir)
+	{
+		moveLog.append(grabbedIndex, dir);
+		redoLog.clear();
+	}
 
-				else if (grabbedBlock.getOrientation() == VERTICAL)
-				{
-					Move earlierMove = moveHistory.get(moveHistory.size()-1);
+	/**
+	 * Moves the block at the given index one cell in the given direction without
+	 * recording the move, updating the two cells it moves between, the free cells,
+	 * the fingerprint and whether the game is over. If the block is grabbed the
+	 * grabbed cell moves with it. The move is assumed to be legal.
+	 */
+	private void shiftBlock(int index, Direction dir)
+	{
+		Block block = blocks.get(index);
+		int from = coordinate(block);
+		int rowStep = dir == DOWN ? 1 : dir == UP ? -1 : 0;
+		int colStep = dir == RIGHT ? 1 : dir == LEFT ? -1 : 0;
+
+		// the block leaves the cell at one end and enters the cell past the other
+		int firstRow = block.getFirstRow();
+		int firstCol = block.getFirstCol();
+		int lastRow = block.getOrientation() == VERTICAL ? firstRow + block.getLength() - 1 : firstRow;
+		int lastCol = block.getOrientation() == HORIZONTAL ? firstCol + block.getLength() - 1 : firstCol;
+		boolean forward = dir == RIGHT || dir == DOWN;
+		Cell left = forward ? grid[firstRow][firstCol] : grid[lastRow][lastCol];
+		Cell entered = forward ? grid[lastRow + rowStep][lastCol + colStep] : grid[firstRow + rowStep][firstCol + colStep];
+
+		block.move(dir);
+		entered.setBlock(block);
+		free.setFree(entered.getRow(), entered.getCol(), false);
+		left.clearBlock();
+		free.setFree(left.getRow(), left.getCol(), true);
+		fingerprint ^= zobrist[index][from] ^ zobrist[index][coordinate(block)];
+
+		if (block == grabbedBlock)
+		{
+			grabbedCell = grid[grabbedCell.getRow() + rowStep][grabbedCell.getCol() + colStep];
+		}
 
-					if (earlierMove.getDirection() == UP)
-					{
-						moveGrabbedBlock(DOWN);
-						moveHistory.remove(moveHistory.size() - 1);
-						moveHistory.remove(moveHistory.size() - 2);
-						totMoves-=2;
-					}
+		isGameEnded = isOnExit(block);
+	}
 
-					else if (earlierMove.getDirection() == DOWN)
-					{
-						moveGrabbedBlock(UP);
-						moveHistory.remove(moveHistory.size() - 1);
-						moveHistory.remove(moveHistory.size() - 2);
-						totMoves-=2;
-					}
-				}
+	/**
+	 * Returns the direction opposite to the given one.
+	 */
+	private static Direction opposite(Direction dir)
+	{
+		if (dir == LEFT)
+		{
+			return RIGHT;
+		}
+		else if (dir == RIGHT)
+		{
+			return LEFT;
+		}
+		else if (dir == UP)
+		{
+			return DOWN;
+		}
+		return UP;
+	}
+
+	/**
+	 * Returns true if the last cell of the given block is on an exit. Only the
+	 * block that moved can have reached an exit, so this is all a move needs to
+	 * check.
+	 */
+	private boolean isOnExit(Block block)
+	{
+		int row = block.getFirstRow();
+		int col = block.getFirstCol();
+		if (block.getOrientation() == HORIZONTAL)
+		{
+			col += block.getLength() - 1;
+		}
+		else
+		{
+			row += block.getLength() - 1;
+		}
+		return row < grid.length && col < grid[row].length && grid[row][col].isExit();
+	}
+
+	/**
+	 * Returns true if the last cell of any block is on an exit.
+	 */
+	private boolean anyBlockOnExit()
+	{
+		for (Block block : blocks)
+		{
+			if (isOnExit(block))
+			{
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Sets the free cells of the bitboard from the grid.
+	 */
+	private void fillBitboard()
+	{
+		for (int i = 0; i < grid.length; i++)
+		{
+			for (int j = 0; j < grid[i].length; j++)
+			{
+				free.setFree(i, j, !grid[i][j].isWall() && !grid[i][j].hasBlock());
+			}
+		}
+	}
+
+	/**
+	 * Replaces the key of the grabbed block at coordinate from with its key at
+	 * coordinate to.
+	 */
+	private void moveFingerprint(int from, int to)
+	{
+		fingerprint ^= zobrist[grabbedIndex][from] ^ zobrist[grabbedIndex][to];
+	}
+
+	/**
+	 * Returns the variable coordinate of a block, the first column of a horizontal
+	 * block or the first row of a vertical block.
+	 */
+	private static int coordinate(Block block)
+	{
+		return block.getOrientation() == HORIZONTAL ? block.getFirstCol() : block.getFirstRow();
 	}
 
 	@Override
@@ -0,0 +1,271 @@
+package hw3;
+
+import java.util.Arrays;
+
+import api.Direction;
+
+/**
+ * An immutable position of a Block Slider board. The walls, exits and the
+ * lane, length and orientation of every block are kept in a Layout shared by
+ * all states of the board, and a state holds only the variable coordinate of
+ * each block, packed by the layout into as many longs as it needs. Applying a move
+ * returns a new state and leaves this one unchanged, so states can be handed
+ * between threads and kept in hash sets or maps without copying, unlike a
+ * Board, whose blocks change as they are moved.
+ * <p>
+ * Moves are encoded as by Layout.encodeMove() and Layout.encodeSlide(), with
+ * the same block indexes as Board.getBlocks(). Two states are equal if they
+ * share the same layout and have every block at the same coordinate.
+ */
+public final class BoardState
+{
+	/**
+	 * Fixed part of the position, shared by every state derived from this one.
+	 */
+	private final Layout layout;
+
+	/**
+	 * Block coordinates packed by the layout.
+	 */
+	private final long[] key;
+
+	/**
+	 * Hash of the packed coordinates, computed once.
+	 */
+	private final int hash;
+
+	/**
+	 * Constructs the state of the current position of the given board, with a new
+	 * layout of the board. The board is not modified.
+	 *
+	 * @param board any instance of Board
+	 */
+	public BoardState(Board board)
+	{
+		this(new Layout(board), board);
+	}
+
+	/**
+	 * Constructs the state of the current position of the given board, sharing
+	 * the given layout. The board is not modified.
+	 *
+	 * @param layout the layout of the board
+	 * @param board  a board with this layout
+	 */
+	public BoardState(Layout layout, Board board)
+	{
+		this(layout, readPositions(layout, board));
+	}
+
+	/**
+	 * Constructs the state with the given block coordinates.
+	 *
+	 * @param layout    the layout the coordinates belong to
+	 * @param positions the variable coordinate of each block
+	 */
+	public BoardState(Layout layout, int[] positions)
+	{
+		this(layout, pack(layout, positions));
+	}
+
+	/**
+	 * Constructs the state with the given packed coordinates, which must not be
+	 * changed afterwards.
+	 */
+	private BoardState(Layout layout, long[] key)
+	{
+		this.layout = layout;
+		this.key = key;
+		hash = Arrays.hashCode(key);
+	}
+
+	/**
+	 * Returns the layout shared by this state and every state derived from it.
+	 *
+	 * @return the layout
+	 */
+	public Layout getLayout()
+	{
+		return layout;
+	}
+
+	/**
+	 * Returns the variable coordinate of the given block, the first column of a
+	 * horizontal block or the first row of a vertical block.
+	 *
+	 * @param block index of the block
+	 * @return the coordinate of the block
+	 */
+	public int getPosition(int block)
+	{
+		return layout.getPosition(key, 0, block);
+	}
+
+	/**
+	 * Returns the variable coordinate of every block in a new array, as taken by
+	 * the search engines.
+	 *
+	 * @return the coordinate of each block
+	 */
+	public int[] getPositions()
+	{
+		int[] positions = new int[layout.getBlockCount()];
+		layout.unpack(key, 0, positions);
+		return positions;
+	}
+
+	/**
+	 * Returns true if the end of some block is on an exit, matching
+	 * Board.isGameOver().
+	 *
+	 * @return true if the position is solved
+	 */
+	public boolean isGoal()
+	{
+		for (int k = 0; k < layout.getBlockCount(); k++)
+		{
+			int end = getPosition(k) + layout.getLength(k) - 1;
+			if (layout.isHorizontal(k) ? layout.isExit(layout.getLane(k), end) : layout.isExit(end, layout.getLane(k)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes every legal single cell move of this state into dest, in the same
+	 * order as Board.generateMoves(). The free cells are marked once in a copy of
+	 * the layout's row masks of open cells, so each move is checked with a single
+	 * probe. If the position is solved there are no legal moves.
+	 *
+	 * @param dest array to write the encoded moves to, see Layout.getMaxMoves()
+	 * @return the number of moves written
+	 */
+	public int generateMoves(int[] dest)
+	{
+		int count = 0;
+		if (isGoal())
+		{
+			return count;
+		}
+
+		long[] free = freeCells();
+		for (int k = 0; k < layout.getBlockCount(); k++)
+		{
+			int position = getPosition(k);
+			int lane = layout.getLane(k);
+			if (layout.isHorizontal(k))
+			{
+				if (layout.isFree(free, lane, position + layout.getLength(k)))
+				{
+					dest[count++] = Layout.encodeMove(k, Direction.RIGHT);
+				}
+				if (layout.isFree(free, lane, position - 1))
+				{
+					dest[count++] = Layout.encodeMove(k, Direction.LEFT);
+				}
+			}
+
+			else
+			{
+				if (layout.isFree(free, position - 1, lane))
+				{
+					dest[count++] = Layout.encodeMove(k, Direction.UP);
+				}
+				if (layout.isFree(free, position + layout.getLength(k), lane))
+				{
+					dest[count++] = Layout.encodeMove(k, Direction.DOWN);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the state reached by applying the given encoded move to this one,
+	 * which is not changed. The move is assumed to be legal.
+	 *
+	 * @param move the encoded move
+	 * @return the new state
+	 */
+	public BoardState apply(int move)
+	{
+		long[] next = key.clone();
+		layout.applyPacked(next, 0, move);
+		return new BoardState(layout, next);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (!(obj instanceof BoardState))
+		{
+			return false;
+		}
+		BoardState other = (BoardState) obj;
+		return hash == other.hash && layout == other.layout && Arrays.equals(key, other.key);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return Arrays.toString(getPositions());
+	}
+
+	/**
+	 * Returns the row masks of the cells that are open and not covered by a
+	 * block.
+	 */
+	private long[] freeCells()
+	{
+		long[] free = layout.copyOpenRows();
+		for (int k = 0; k < layout.getBlockCount(); k++)
+		{
+			int position = getPosition(k);
+			int lane = layout.getLane(k);
+			for (int c = position; c < position + layout.getLength(k); c++)
+			{
+				if (layout.isHorizontal(k))
+				{
+					layout.cover(free, lane, c);
+				}
+				else
+				{
+					layout.cover(free, c, lane);
+				}
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Reads the block coordinates of the given board.
+	 */
+	private static int[] readPositions(Layout layout, Board board)
+	{
+		int[] positions = new int[layout.getBlockCount()];
+		layout.readPositions(board, positions);
+		return positions;
+	}
+
+	/**
+	 * Packs the given block coordinates into a new array.
+	 */
+	private static long[] pack(Layout layout, int[] positions)
+	{
+		long[] key = new long[layout.getWords()];
+		layout.pack(positions, key, 0);
+		return key;
+	}
+}
@@ -0,0 +1,216 @@
+package hw3;
+
+/**
+ * Level by level breadth-first search over packed positions. Every position is
+ * stored once, by its canonical key (see Symmetry), in a StateStore whose value
+ * holds the id of its parent, so the ids of one level are a contiguous range
+ * and the first solution found is a shortest one.
+ */
+public class BreadthFirstSearch
+{
+	/**
+	 * Layout of the board being searched.
+	 */
+	private Layout layout;
+
+	/**
+	 * Deepest level that will be generated.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Positions seen so far, empty when the search starts.
+	 */
+	private StateStore table;
+
+	/**
+	 * Canonical form of positions, so equivalent positions are stored once.
+	 */
+	private Symmetry symmetry;
+
+	/**
+	 * True if a slide of any number of cells counts as one move.
+	 */
+	private boolean slides;
+
+	/**
+	 * Control polled while searching, or null to run to the end.
+	 */
+	private SearchControl control;
+
+	/**
+	 * Counters of the last search.
+	 */
+	private SearchStatistics statistics;
+
+	/**
+	 * Constructs a search over positions of the given layout that keeps visited
+	 * positions in a StateTable on the heap.
+	 *
+	 * @param layout   layout of the board to search
+	 * @param maxDepth maximum number of moves in a solution
+	 */
+	public BreadthFirstSearch(Layout layout, int maxDepth)
+	{
+		this(layout, maxDepth, new StateTable(layout.getWords()), new Symmetry(layout));
+	}
+
+	/**
+	 * Constructs a search over positions of the given layout that keeps visited
+	 * positions in the given store.
+	 *
+	 * @param layout   layout of the board to search
+	 * @param maxDepth maximum number of moves in a solution
+	 * @param table    an empty store for keys of the layout
+	 * @param symmetry canonical form of positions of the layout
+	 */
+	public BreadthFirstSearch(Layout layout, int maxDepth, StateStore table, Symmetry symmetry)
+	{
+		this.layout = layout;
+		this.maxDepth = maxDepth;
+		this.table = table;
+		this.symmetry = symmetry;
+	}
+
+	/**
+	 * Sets whether a block sliding any number of cells counts as a single move,
+	 * so the solution found has the fewest slides rather than the fewest cells
+	 * moved.
+	 *
+	 * @param slides true to count slides
+	 */
+	public void setSlides(boolean slides)
+	{
+		this.slides = slides;
+	}
+
+	/**
+	 * Sets the control that can stop the search and is told of its progress.
+	 *
+	 * @param control the control, or null to run to the end
+	 */
+	public void setControl(SearchControl control)
+	{
+		this.control = control;
+	}
+
+	/**
+	 * Returns the counters of the last search, or of the one running.
+	 *
+	 * @return statistics of the last search
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Searches for a shortest solution starting from the given block coordinates.
+	 *
+	 * @param start the variable coordinate of each block
+	 * @return the result of the search
+	 */
+	public SolverResult search(int[] start)
+	{
+		statistics = new SearchStatistics(slides ? "fewest-slides" : "breadth-first");
+		statistics.start();
+		SolverResult result = run(start);
+		statistics.finish(result);
+		return result;
+	}
+
+	/**
+	 * Runs the search, recording it in the statistics.
+	 */
+	private SolverResult run(int[] start)
+	{
+		int words = layout.getWords();
+		int[] positions = start.clone();
+		boolean[] occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		int[] moves = new int[slides ? layout.getMaxSlides() : layout.getMaxMoves()];
+		long[] key = new long[words];
+
+		if (control != null)
+		{
+			control.begin();
+		}
+		if (layout.isGoal(positions))
+		{
+			return new SolverResult(new int[0], 0, 1, 0);
+		}
+
+		symmetry.canonical(positions, key, 0);
+		table.add(key, 0);
+		table.setValue(0, -1);
+
+		long expanded = 0;
+		long peak = 1;
+		int levelStart = 0;
+		int levelEnd = 1;
+		int depth = 0;
+
+		while (levelStart < levelEnd && depth < maxDepth)
+		{
+			depth++;
+			for (int id = levelStart; id < levelEnd; id++)
+			{
+				if (control != null && control.poll(depth, expanded))
+				{
+					return new SolverResult(null, expanded, peak, depth - 1, false);
+				}
+				table.getKey(id, key, 0);
+				layout.unpack(key, 0, positions);
+				layout.fillOccupied(positions, occupied);
+				int count = slides ? layout.generateSlides(positions, occupied, moves)
+						: layout.generateMoves(positions, occupied, moves);
+				expanded++;
+				statistics.expanded(count);
+
+				for (int i = 0; i < count; i++)
+				{
+					layout.apply(positions, null, moves[i]);
+					symmetry.canonical(positions, key, 0);
+					int child = table.add(key, 0);
+					if (child >= 0)
+					{
+						table.setValue(child, id);
+
+						if (layout.isGoal(positions))
+						{
+							return new SolverResult(path(start, child, depth), expanded, peak, depth);
+						}
+					}
+					else
+					{
+						statistics.duplicates(1);
+					}
+					layout.apply(positions, null, Layout.opposite(moves[i]));
+				}
+			}
+
+			levelStart = levelEnd;
+			levelEnd = table.size();
+			peak = Math.max(peak, levelEnd - levelStart);
+			statistics.frontier(levelEnd - levelStart);
+			statistics.endLevel();
+		}
+
+		return new SolverResult(null, expanded, peak, depth);
+	}
+
+	/**
+	 * Follows parent ids back from the given position to the start, then replays
+	 * the stored positions from the real start.
+	 */
+	private int[] path(int[] start, int id, int length)
+	{
+		int words = layout.getWords();
+		long[] chain = new long[(length + 1) * words];
+		for (int i = length; i >= 0; i--)
+		{
+			table.getKey(id, chain, i * words);
+			id = (int) table.getValue(id);
+		}
+		return symmetry.replay(start, chain, length, slides);
+	}
+}
@@ -0,0 +1,712 @@
+package hw3;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Breadth-first search whose levels are kept on disk rather than in memory, for
+ * puzzles with more positions than fit in the heap. Each level is a file of
+ * packed positions in sorted order, compared word by word. The first word of
+ * each is written as the difference from the one before it in a variable number
+ * of bytes and any further words as they are. Expanding a level writes the
+ * children in sorted runs of a fixed number of positions, and the runs are then
+ * merged into the next level, dropping duplicates and any position already in
+ * one of the two previous levels. Since every move can be undone, a child can
+ * only be in the previous level, the current level or the next one, so those
+ * are the only levels that need checking. Positions are stored by their
+ * canonical key (see Symmetry). The search polls its control while expanding
+ * and while merging, so it can be stopped during either.
+ */
+public class ExternalBreadthFirstSearch
+{
+	/**
+	 * Size of the buffer used to read or write a file.
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Layout of the board being searched.
+	 */
+	private Layout layout;
+
+	/**
+	 * Deepest level that will be generated.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Directory in which the level and run files are created.
+	 */
+	private File directory;
+
+	/**
+	 * Number of children held in memory before they are written as a run.
+	 */
+	private int runStates;
+
+	/**
+	 * Canonical form of positions, so equivalent positions are stored once.
+	 */
+	private Symmetry symmetry;
+
+	/**
+	 * Number of words in a packed position.
+	 */
+	private int words;
+
+	/**
+	 * Control polled while searching, or null to run to the end.
+	 */
+	private SearchControl control;
+
+	/**
+	 * Counters of the last search.
+	 */
+	private SearchStatistics statistics;
+
+	/**
+	 * Constructs a search over positions of the given layout.
+	 *
+	 * @param layout    layout of the board to search
+	 * @param maxDepth  maximum number of moves in a solution
+	 * @param directory directory for temporary files
+	 * @param runStates number of positions sorted in memory at one time
+	 * @param symmetry  canonical form of positions of the layout
+	 */
+	public ExternalBreadthFirstSearch(Layout layout, int maxDepth, File directory, int runStates, Symmetry symmetry)
+	{
+		this.layout = layout;
+		words = layout.getWords();
+		this.maxDepth = maxDepth;
+		this.directory = directory;
+		this.runStates = Math.max(1, runStates);
+		this.symmetry = symmetry;
+	}
+
+	/**
+	 * Sets the control that can stop the search and is told of its progress.
+	 *
+	 * @param control the control, or null to run to the end
+	 */
+	public void setControl(SearchControl control)
+	{
+		this.control = control;
+	}
+
+	/**
+	 * Returns the counters of the last search, or of the one running.
+	 *
+	 * @return statistics of the last search
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Searches for a shortest solution starting from the given block coordinates.
+	 * All temporary files are deleted before this method returns.
+	 *
+	 * @param start the variable coordinate of each block
+	 * @return the result of the search
+	 */
+	public SolverResult search(int[] start)
+	{
+		Path dir = null;
+		try
+		{
+			statistics = new SearchStatistics("external-breadth-first");
+			statistics.start();
+			dir = Files.createTempDirectory(directory.toPath(), "layers");
+			SolverResult result = search(start, dir);
+			statistics.finish(result);
+			return result;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			delete(dir);
+		}
+	}
+
+	/**
+	 * Runs the search with level files in the given directory.
+	 */
+	private SolverResult search(int[] start, Path dir) throws IOException
+	{
+		int[] positions = start.clone();
+		if (control != null)
+		{
+			control.begin();
+		}
+		if (layout.isGoal(positions))
+		{
+			return new SolverResult(new int[0], 0, 1, 0);
+		}
+
+		boolean[] occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		int[] moves = new int[layout.getMaxMoves()];
+		long[] key = new long[words];
+		long[] buffer = new long[runStates * words];
+
+		ArrayList<Path> levels = new ArrayList<Path>();
+		symmetry.canonical(positions, key, 0);
+		Path first = dir.resolve("level0");
+		try (LevelWriter writer = new LevelWriter(first, words))
+		{
+			writer.write(key, 0);
+		}
+		levels.add(first);
+
+		long expanded = 0;
+		long peak = 1;
+		int depth = 0;
+
+		while (depth < maxDepth)
+		{
+			depth++;
+			ArrayList<Path> runs = new ArrayList<Path>();
+			int count = 0;
+			long children = 0;
+
+			try (LevelReader reader = new LevelReader(levels.get(depth - 1), words))
+			{
+				while (reader.hasNext())
+				{
+					if (control != null && control.poll(depth, expanded))
+					{
+						return new SolverResult(null, expanded, peak, depth - 1, false);
+					}
+					reader.next(key, 0);
+					layout.unpack(key, 0, positions);
+					layout.fillOccupied(positions, occupied);
+					int moveCount = layout.generateMoves(positions, occupied, moves);
+					expanded++;
+					statistics.expanded(moveCount);
+					children += moveCount;
+
+					for (int i = 0; i < moveCount; i++)
+					{
+						layout.apply(positions, null, moves[i]);
+						symmetry.canonical(positions, key, 0);
+						if (layout.isGoal(positions))
+						{
+							return new SolverResult(path(start, levels, key, depth), expanded, peak, depth);
+						}
+
+						System.arraycopy(key, 0, buffer, count * words, words);
+						count++;
+						if (count == runStates)
+						{
+							runs.add(writeRun(dir.resolve("run" + runs.size()), buffer, count));
+							count = 0;
+						}
+						layout.apply(positions, null, Layout.opposite(moves[i]));
+					}
+				}
+			}
+			runs.add(writeRun(dir.resolve("run" + runs.size()), buffer, count));
+
+			Path next = dir.resolve("level" + depth);
+			long size = merge(runs, levels.get(depth - 1), depth >= 2 ? levels.get(depth - 2) : null, next, depth,
+					expanded);
+			delete(runs);
+			if (size < 0)
+			{
+				return new SolverResult(null, expanded, peak, depth - 1, false);
+			}
+			levels.add(next);
+			statistics.duplicates(children - size);
+			statistics.frontier(size);
+			statistics.endLevel();
+
+			if (size == 0)
+			{
+				break;
+			}
+			peak = Math.max(peak, size);
+		}
+
+		return new SolverResult(null, expanded, peak, depth);
+	}
+
+	/**
+	 * Sorts the first count positions of buffer and writes them without
+	 * duplicates to the given file.
+	 */
+	private Path writeRun(Path file, long[] buffer, int count) throws IOException
+	{
+		sort(buffer, count, words);
+		try (LevelWriter writer = new LevelWriter(file, words))
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (i == 0 || compare(buffer, i * words, buffer, (i - 1) * words, words) != 0)
+				{
+					writer.write(buffer, i * words);
+				}
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Merges the sorted runs into the file next, leaving out duplicates and
+	 * positions present in either of the sorted levels current and previous.
+	 * Returns the number of positions written, or -1 if the control stopped the
+	 * search first.
+	 */
+	private long merge(ArrayList<Path> runs, Path current, Path previous, Path next, int depth, long expanded)
+			throws IOException
+	{
+		LevelReader[] readers = new LevelReader[runs.size()];
+		long[] heads = new long[runs.size() * words];
+		long[] value = new long[words];
+		long[] last = new long[words];
+		int open = 0;
+
+		try (LevelReader cur = new LevelReader(current, words);
+				LevelReader prev = previous == null ? null : new LevelReader(previous, words);
+				LevelWriter writer = new LevelWriter(next, words))
+		{
+			for (int i = 0; i < readers.length; i++)
+			{
+				readers[i] = new LevelReader(runs.get(i), words);
+				if (readers[i].hasNext())
+				{
+					readers[i].next(heads, i * words);
+					open++;
+				}
+				else
+				{
+					readers[i].close();
+					readers[i] = null;
+				}
+			}
+
+			boolean any = false;
+			while (open > 0)
+			{
+				if (control != null && control.poll(depth, expanded))
+				{
+					return -1;
+				}
+
+				// smallest head among the runs still open
+				int min = -1;
+				for (int i = 0; i < readers.length; i++)
+				{
+					if (readers[i] != null && (min < 0 || compare(heads, i * words, heads, min * words, words) < 0))
+					{
+						min = i;
+					}
+				}
+
+				System.arraycopy(heads, min * words, value, 0, words);
+				if (readers[min].hasNext())
+				{
+					readers[min].next(heads, min * words);
+				}
+				else
+				{
+					readers[min].close();
+					readers[min] = null;
+					open--;
+				}
+
+				if ((any && Arrays.equals(value, last)) || cur.skipTo(value, 0)
+						|| (prev != null && prev.skipTo(value, 0)))
+				{
+					continue;
+				}
+				writer.write(value, 0);
+				System.arraycopy(value, 0, last, 0, words);
+				any = true;
+			}
+			return writer.getCount();
+		}
+		finally
+		{
+			for (LevelReader reader : readers)
+			{
+				if (reader != null)
+				{
+					reader.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the moves leading to the given position at the given depth by
+	 * finding, level by level, a neighbor that lies in the level before, then
+	 * replaying those positions from the real start.
+	 */
+	private int[] path(int[] start, ArrayList<Path> levels, long[] goal, int depth) throws IOException
+	{
+		int[] positions = new int[layout.getBlockCount()];
+		boolean[] occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		int[] moves = new int[layout.getMaxMoves()];
+		long[] chain = new long[(depth + 1) * words];
+		System.arraycopy(goal, 0, chain, depth * words, words);
+
+		for (int level = depth - 1; level >= 0; level--)
+		{
+			layout.unpack(chain, (level + 1) * words, positions);
+			layout.fillOccupied(positions, occupied);
+			int count = layout.generateMoves(positions, occupied, moves);
+			long[] neighbors = new long[count * words];
+			for (int i = 0; i < count; i++)
+			{
+				layout.apply(positions, null, moves[i]);
+				symmetry.canonical(positions, neighbors, i * words);
+				layout.apply(positions, null, Layout.opposite(moves[i]));
+			}
+			sort(neighbors, count, words);
+
+			// both are sorted, so one pass over the level finds the first neighbor in it
+			try (LevelReader reader = new LevelReader(levels.get(level), words))
+			{
+				for (int i = 0; i < count; i++)
+				{
+					if (reader.skipTo(neighbors, i * words))
+					{
+						System.arraycopy(neighbors, i * words, chain, level * words, words);
+						break;
+					}
+				}
+			}
+		}
+		return symmetry.replay(start, chain, depth, false);
+	}
+
+	/**
+	 * Compares the positions of the given number of words at the given offsets,
+	 * word by word.
+	 */
+	private static int compare(long[] a, int aOffset, long[] b, int bOffset, int words)
+	{
+		for (int w = 0; w < words; w++)
+		{
+			int c = Long.compare(a[aOffset + w], b[bOffset + w]);
+			if (c != 0)
+			{
+				return c;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Sorts the first count positions of records in the order of compare(), by
+	 * heapsort in place when a position takes more than one word.
+	 */
+	private static void sort(long[] records, int count, int words)
+	{
+		if (words == 1)
+		{
+			Arrays.sort(records, 0, count);
+			return;
+		}
+		for (int i = count / 2 - 1; i >= 0; i--)
+		{
+			siftDown(records, i, count, words);
+		}
+		for (int end = count - 1; end > 0; end--)
+		{
+			swap(records, 0, end, words);
+			siftDown(records, 0, end, words);
+		}
+	}
+
+	/**
+	 * Moves position i of the heap of the given size down until it is no smaller
+	 * than its children.
+	 */
+	private static void siftDown(long[] records, int i, int size, int words)
+	{
+		while (2 * i + 1 < size)
+		{
+			int child = 2 * i + 1;
+			if (child + 1 < size && compare(records, child * words, records, (child + 1) * words, words) < 0)
+			{
+				child++;
+			}
+			if (compare(records, i * words, records, child * words, words) >= 0)
+			{
+				return;
+			}
+			swap(records, i, child, words);
+			i = child;
+		}
+	}
+
+	/**
+	 * Swaps positions a and b of records.
+	 */
+	private static void swap(long[] records, int a, int b, int words)
+	{
+		for (int w = 0; w < words; w++)
+		{
+			long t = records[a * words + w];
+			records[a * words + w] = records[b * words + w];
+			records[b * words + w] = t;
+		}
+	}
+
+	/**
+	 * Deletes the given files, ignoring any that are already gone.
+	 */
+	private static void delete(ArrayList<Path> files) throws IOException
+	{
+		for (Path file : files)
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Deletes the given directory and every file in it.
+	 */
+	private static void delete(Path dir)
+	{
+		if (dir == null)
+		{
+			return;
+		}
+		File[] files = dir.toFile().listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+		dir.toFile().delete();
+	}
+
+	/**
+	 * Writes a sorted sequence of positions to a file. The first word of each
+	 * position is written as the difference from the first word of the one before
+	 * it in seven bit groups, and any other words as they are, so a file of
+	 * single word positions takes a byte or two per position.
+	 */
+	private static class LevelWriter implements Closeable
+	{
+		/**
+		 * Channel of the file being written.
+		 */
+		private FileChannel channel;
+
+		/**
+		 * Bytes not yet written to the channel.
+		 */
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		/**
+		 * Number of words in each position.
+		 */
+		private int words;
+
+		/**
+		 * First word of the last position written.
+		 */
+		private long previous;
+
+		/**
+		 * Number of positions written.
+		 */
+		private long count;
+
+		LevelWriter(Path file, int words) throws IOException
+		{
+			this.words = words;
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void write(long[] src, int offset) throws IOException
+		{
+			if (buffer.remaining() < 10 + 8 * (words - 1))
+			{
+				flush();
+			}
+			long delta = src[offset] - previous;
+			while ((delta & ~0x7FL) != 0)
+			{
+				buffer.put((byte) (delta & 0x7F | 0x80));
+				delta >>>= 7;
+			}
+			buffer.put((byte) delta);
+			for (int w = 1; w < words; w++)
+			{
+				buffer.putLong(src[offset + w]);
+			}
+			previous = src[offset];
+			count++;
+		}
+
+		long getCount()
+		{
+			return count;
+		}
+
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads back a file written by a LevelWriter.
+	 */
+	private static class LevelReader implements Closeable
+	{
+		/**
+		 * Channel of the file being read.
+		 */
+		private FileChannel channel;
+
+		/**
+		 * Bytes read from the channel and not yet decoded.
+		 */
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		/**
+		 * Number of words in each position.
+		 */
+		private int words;
+
+		/**
+		 * The last position decoded.
+		 */
+		private long[] record;
+
+		/**
+		 * True if record holds a position decoded by skipTo() and not yet returned
+		 * by next().
+		 */
+		private boolean hasPeeked;
+
+		LevelReader(Path file, int words) throws IOException
+		{
+			this.words = words;
+			record = new long[words];
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			buffer.flip();
+		}
+
+		boolean hasNext() throws IOException
+		{
+			return hasPeeked || fill(1);
+		}
+
+		/**
+		 * Copies the next position into dest at the given offset.
+		 */
+		void next(long[] dest, int offset) throws IOException
+		{
+			if (!hasPeeked)
+			{
+				decode();
+			}
+			hasPeeked = false;
+			System.arraycopy(record, 0, dest, offset, words);
+		}
+
+		/**
+		 * Skips every position smaller than the given one and returns true if the
+		 * next position equals it. The positions must be asked for in increasing
+		 * order.
+		 */
+		boolean skipTo(long[] value, int offset) throws IOException
+		{
+			while (hasNext())
+			{
+				if (!hasPeeked)
+				{
+					decode();
+				}
+				int c = compare(record, 0, value, offset, words);
+				hasPeeked = c >= 0;
+				if (hasPeeked)
+				{
+					return c == 0;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Decodes the next position into record.
+		 */
+		private void decode() throws IOException
+		{
+			long delta = 0;
+			int shift = 0;
+			byte b;
+			do
+			{
+				fill(1);
+				b = buffer.get();
+				delta |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			record[0] += delta;
+			for (int w = 1; w < words; w++)
+			{
+				fill(8);
+				record[w] = buffer.getLong();
+			}
+		}
+
+		/**
+		 * Makes sure at least the given number of bytes are buffered, returns false
+		 * if the file ends first.
+		 */
+		private boolean fill(int bytes) throws IOException
+		{
+			while (buffer.remaining() < bytes)
+			{
+				buffer.compact();
+				int read = channel.read(buffer);
+				buffer.flip();
+				if (read < 0)
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			channel.close();
+		}
+	}
+}
@@ -136,4 +136,56 @@ public class GridUtil
 
 		return blockObj;
 	}
+
+	/**
+	 * Constructs a board from a 2D array of cell descriptions given as one char
+	 * per cell, with the same meanings as for createGrid() and findBlocks(). The
+	 * cells and blocks are created together in a single pass over the grid,
+	 * comparing chars rather than strings, so this is the fast way to build
+	 * boards from grids read by DescriptionUtil.streamBoardGrids(). The result is
+	 * the same as Board(String[][]) given the same descriptions as strings.
+	 * 
+	 * @param desc a 2D array of chars describing the grid
+	 * @return a board with the cells and blocks of the description
+	 */
+	public static Board createBoard(char[][] desc)
+	{
+		int rows = desc.length;
+		int cols = desc[0].length;
+
+		Cell[][] cellObj = new Cell[rows][cols];
+		ArrayList<Block> blockObj = new ArrayList<Block>();
+
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < desc[i].length; j++)
+			{
+				char c = desc[i][j];
+				cellObj[i][j] = new Cell(c == '*' ? WALL : c == 'e' ? EXIT : FLOOR, i, j);
+
+				// a block runs from its start through any inner segments to its end
+				if (c == '[')
+				{
+					int length = 2;
+					while (desc[i][j + length - 1] == '#')
+					{
+						length++;
+					}
+					blockObj.add(new Block(i, j, length, HORIZONTAL));
+				}
+
+				else if (c == '^')
+				{
+					int length = 2;
+					while (desc[i + length - 1][j] == '#')
+					{
+						length++;
+					}
+					blockObj.add(new Block(i, j, length, VERTICAL));
+				}
+			}
+		}
+
+		return new Board(cellObj, blockObj);
+	}
 }
@@ -0,0 +1,23 @@
+package hw3;
+
+/**
+ * A lower bound on the number of moves needed to solve a position, used to
+ * guide IdaStarSearch. An estimate must never be larger than the real number
+ * of moves, otherwise the solution found may not be a shortest one.
+ */
+public interface Heuristic
+{
+	/**
+	 * Value returned for positions from which the puzzle cannot be solved.
+	 */
+	int UNSOLVABLE = Integer.MAX_VALUE / 2;
+
+	/**
+	 * Returns a lower bound on the number of moves needed to solve the given
+	 * position, or UNSOLVABLE if it cannot be solved.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @return the estimate
+	 */
+	int estimate(int[] positions);
+}
@@ -0,0 +1,222 @@
+package hw3;
+
+/**
+ * Iterative deepening A* search. Each iteration is a depth-first search that
+ * cuts off any position whose move count plus heuristic estimate exceeds the
+ * current bound, and the next bound is the smallest estimate that was cut off.
+ * Nothing but the current path is stored, so memory stays proportional to the
+ * solution length no matter how many positions are visited. Since the
+ * heuristic never overestimates, the first solution found is a shortest one.
+ */
+public class IdaStarSearch
+{
+	/**
+	 * Layout of the board being searched.
+	 */
+	private Layout layout;
+
+	/**
+	 * Lower bound on the moves left from a position.
+	 */
+	private Heuristic heuristic;
+
+	/**
+	 * Largest number of moves in a solution.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Current block coordinates, changed in place as the search moves.
+	 */
+	private int[] positions;
+
+	/**
+	 * Cells covered by blocks in the current position.
+	 */
+	private boolean[] occupied;
+
+	/**
+	 * Moves made from the start to reach the current position.
+	 */
+	private int[] path;
+
+	/**
+	 * Generated moves for each depth of the current path.
+	 */
+	private int[][] moves;
+
+	/**
+	 * Smallest bound exceeded during the current iteration.
+	 */
+	private int nextBound;
+
+	/**
+	 * Number of positions expanded over all iterations.
+	 */
+	private long expanded;
+
+	/**
+	 * Control polled while searching, or null to run to the end.
+	 */
+	private SearchControl control;
+
+	/**
+	 * True once the control has stopped the search.
+	 */
+	private boolean stopped;
+
+	/**
+	 * Counters of the last search.
+	 */
+	private SearchStatistics statistics;
+
+	/**
+	 * Constructs a search over positions of the given layout guided by a
+	 * BlockingHeuristic.
+	 *
+	 * @param layout   layout of the board to search
+	 * @param maxDepth maximum number of moves in a solution
+	 */
+	public IdaStarSearch(Layout layout, int maxDepth)
+	{
+		this(layout, maxDepth, new BlockingHeuristic(layout));
+	}
+
+	/**
+	 * Constructs a search over positions of the given layout guided by the given
+	 * heuristic.
+	 *
+	 * @param layout    layout of the board to search
+	 * @param maxDepth  maximum number of moves in a solution
+	 * @param heuristic lower bound on the moves left from a position
+	 */
+	public IdaStarSearch(Layout layout, int maxDepth, Heuristic heuristic)
+	{
+		this.layout = layout;
+		this.maxDepth = maxDepth;
+		this.heuristic = heuristic;
+	}
+
+	/**
+	 * Sets the control that can stop the search and is told of its progress.
+	 *
+	 * @param control the control, or null to run to the end
+	 */
+	public void setControl(SearchControl control)
+	{
+		this.control = control;
+	}
+
+	/**
+	 * Returns the counters of the last search, or of the one running.
+	 *
+	 * @return statistics of the last search
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Searches for a shortest solution starting from the given block coordinates.
+	 *
+	 * @param start the variable coordinate of each block
+	 * @return the result of the search
+	 */
+	public SolverResult search(int[] start)
+	{
+		statistics = new SearchStatistics("ida-star");
+		statistics.start();
+		SolverResult result = run(start);
+		statistics.finish(result);
+		return result;
+	}
+
+	/**
+	 * Runs the search, recording it in the statistics.
+	 */
+	private SolverResult run(int[] start)
+	{
+		positions = start.clone();
+		occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		layout.fillOccupied(positions, occupied);
+		path = new int[maxDepth];
+		moves = new int[maxDepth][layout.getMaxMoves()];
+		expanded = 0;
+		stopped = false;
+		if (control != null)
+		{
+			control.begin();
+		}
+
+		int bound = heuristic.estimate(positions);
+		while (bound <= maxDepth)
+		{
+			nextBound = Heuristic.UNSOLVABLE;
+			int length = search(0, bound, -1);
+			if (length >= 0)
+			{
+				int[] solution = new int[length];
+				System.arraycopy(path, 0, solution, 0, length);
+				return new SolverResult(solution, expanded, length, length);
+			}
+			if (stopped)
+			{
+				return new SolverResult(null, expanded, maxDepth, bound - 1, false);
+			}
+			statistics.endLevel();
+			bound = nextBound;
+		}
+
+		return new SolverResult(null, expanded, maxDepth, Math.min(bound, maxDepth));
+	}
+
+	/**
+	 * Depth-first search below the current position, reached after the given
+	 * number of moves. Returns the solution length if one is found within the
+	 * bound, otherwise -1.
+	 */
+	private int search(int depth, int bound, int lastMove)
+	{
+		int estimate = heuristic.estimate(positions);
+		if (depth + estimate > bound)
+		{
+			nextBound = Math.min(nextBound, depth + estimate);
+			return -1;
+		}
+
+		if (layout.isGoal(positions))
+		{
+			return depth;
+		}
+
+		expanded++;
+		if (control != null && control.poll(bound, expanded))
+		{
+			stopped = true;
+			return -1;
+		}
+		int[] options = moves[depth];
+		int count = layout.generateMoves(positions, occupied, options);
+		statistics.expanded(count);
+		statistics.frontier(depth + 1);
+		for (int i = 0; i < count; i++)
+		{
+			// moving straight back only returns to the previous position
+			if (options[i] == Layout.opposite(lastMove))
+			{
+				continue;
+			}
+
+			path[depth] = options[i];
+			layout.apply(positions, occupied, options[i]);
+			int length = search(depth + 1, bound, options[i]);
+			layout.apply(positions, occupied, Layout.opposite(options[i]));
+			if (length >= 0 || stopped)
+			{
+				return length;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,691 @@
+package hw3;
+
+import static api.Orientation.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import api.Direction;
+
+/**
+ * The fixed part of a Block Slider position: the grid dimensions, which cells
+ * a block may cover, and the lane, length and orientation of every block. A
+ * block can only ever slide along its lane, so the variable part of a position
+ * is a single coordinate per block (the first column of a horizontal block or
+ * the first row of a vertical block). A layout packs those coordinates into a
+ * few bits each so that a whole position fits in one or two longs.
+ * <p>
+ * A layout also generates and applies moves on positions held as an int array
+ * of block coordinates. A move is encoded as a single int: the ordinal of the
+ * direction in the lowest two bits, the block index in the next 22 bits and
+ * the number of cells moved, minus one, in the top 8 bits. A single cell move
+ * is therefore just the block index shifted left by two plus the direction.
+ */
+public class Layout
+{
+	/**
+	 * The directions by ordinal, kept so decoding a move does not copy
+	 * Direction.values().
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Number of rows in the grid.
+	 */
+	private int rows;
+
+	/**
+	 * Number of columns in the grid.
+	 */
+	private int cols;
+
+	/**
+	 * For each cell (indexed row * cols + col), true if it is a floor or an exit.
+	 */
+	private boolean[] open;
+
+	/**
+	 * The floor and exit cells row by row, bit col of row row in word row *
+	 * rowWords + col / 64, copied by positions that need to mark the cells their
+	 * blocks cover.
+	 */
+	private long[] openRows;
+
+	/**
+	 * Number of words per row of openRows.
+	 */
+	private int rowWords;
+
+	/**
+	 * For each cell (indexed row * cols + col), true if it is an exit.
+	 */
+	private boolean[] exit;
+
+	/**
+	 * Index row * cols + col of each exit, in row-major order.
+	 */
+	private int[] exits;
+
+	/**
+	 * True for each block that is horizontal.
+	 */
+	private boolean[] horizontal;
+
+	/**
+	 * The length of each block in cells.
+	 */
+	private int[] length;
+
+	/**
+	 * The coordinate of each block that never changes, the row of a horizontal
+	 * block or the column of a vertical block.
+	 */
+	private int[] lane;
+
+	/**
+	 * Number of bits used to store one block coordinate.
+	 */
+	private int bits;
+
+	/**
+	 * Number of block coordinates stored in one long.
+	 */
+	private int perWord;
+
+	/**
+	 * Number of longs needed to store a packed position.
+	 */
+	private int words;
+
+	/**
+	 * Constructs the layout of the given board. The lanes of the blocks are taken
+	 * from their current position, which is the same for any position reachable
+	 * on the board.
+	 *
+	 * @param board the board to describe
+	 */
+	public Layout(Board board)
+	{
+		rows = board.getRowSize();
+		cols = board.getColSize();
+		open = new boolean[rows * cols];
+		exit = new boolean[rows * cols];
+		rowWords = (cols + 63) >>> 6;
+		openRows = new long[rows * rowWords];
+		int exitCount = 0;
+
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < cols; j++)
+			{
+				open[i * cols + j] = !board.getCell(i, j).isWall();
+				if (open[i * cols + j])
+				{
+					openRows[i * rowWords + (j >>> 6)] |= 1L << j;
+				}
+				exit[i * cols + j] = board.getCell(i, j).isExit();
+				if (exit[i * cols + j])
+				{
+					exitCount++;
+				}
+			}
+		}
+
+		exits = new int[exitCount];
+		exitCount = 0;
+		for (int cell = 0; cell < rows * cols; cell++)
+		{
+			if (exit[cell])
+			{
+				exits[exitCount++] = cell;
+			}
+		}
+
+		ArrayList<Block> blocks = board.getBlocks();
+		horizontal = new boolean[blocks.size()];
+		length = new int[blocks.size()];
+		lane = new int[blocks.size()];
+
+		for (int k = 0; k < blocks.size(); k++)
+		{
+			Block block = blocks.get(k);
+			horizontal[k] = block.getOrientation() == HORIZONTAL;
+			length[k] = block.getLength();
+			lane[k] = horizontal[k] ? block.getFirstRow() : block.getFirstCol();
+		}
+
+		int largest = Math.max(rows, cols) - 1;
+		bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(largest));
+		perWord = 64 / bits;
+		words = Math.max(1, (blocks.size() + perWord - 1) / perWord);
+	}
+
+	/**
+	 * Returns the number of rows of the grid.
+	 *
+	 * @return number of rows
+	 */
+	public int getRowSize()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the grid.
+	 *
+	 * @return number of columns
+	 */
+	public int getColSize()
+	{
+		return cols;
+	}
+
+	/**
+	 * Returns the number of blocks in the layout.
+	 *
+	 * @return number of blocks
+	 */
+	public int getBlockCount()
+	{
+		return length.length;
+	}
+
+	/**
+	 * Returns the number of longs needed to store one packed position.
+	 *
+	 * @return words per packed position
+	 */
+	public int getWords()
+	{
+		return words;
+	}
+
+	/**
+	 * Returns true if the block with the given index is horizontal.
+	 *
+	 * @param block index of the block
+	 * @return true if the block is horizontal
+	 */
+	public boolean isHorizontal(int block)
+	{
+		return horizontal[block];
+	}
+
+	/**
+	 * Returns the length of the block with the given index.
+	 *
+	 * @param block index of the block
+	 * @return length in cells
+	 */
+	public int getLength(int block)
+	{
+		return length[block];
+	}
+
+	/**
+	 * Returns the fixed coordinate of the block with the given index, its row if
+	 * it is horizontal or its column if it is vertical.
+	 *
+	 * @param block index of the block
+	 * @return the lane of the block
+	 */
+	public int getLane(int block)
+	{
+		return lane[block];
+	}
+
+	/**
+	 * Returns the number of exits.
+	 *
+	 * @return number of exits
+	 */
+	public int getExitCount()
+	{
+		return exits.length;
+	}
+
+	/**
+	 * Returns the row of the given exit, numbered in row-major order.
+	 *
+	 * @param i index of the exit
+	 * @return exit row
+	 */
+	public int getExitRow(int i)
+	{
+		return exits[i] / cols;
+	}
+
+	/**
+	 * Returns the column of the given exit, numbered in row-major order.
+	 *
+	 * @param i index of the exit
+	 * @return exit column
+	 */
+	public int getExitCol(int i)
+	{
+		return exits[i] % cols;
+	}
+
+	/**
+	 * Returns true if the given cell is inside the grid and is an exit.
+	 *
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @return true if the cell is an exit
+	 */
+	public boolean isExit(int row, int col)
+	{
+		return row >= 0 && row < rows && col >= 0 && col < cols && exit[row * cols + col];
+	}
+
+	/**
+	 * Returns true if a block may be placed over the given cell, that is, the cell
+	 * is inside the grid and is a floor or an exit. Other blocks are not taken
+	 * into account.
+	 *
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @return true if the cell is a floor or exit
+	 */
+	public boolean isOpen(int row, int col)
+	{
+		return row >= 0 && row < rows && col >= 0 && col < cols && open[row * cols + col];
+	}
+
+	/**
+	 * Returns a copy of the row masks of the floor and exit cells, as if there
+	 * were no blocks. Cells are tested and covered with isFree() and cover().
+	 *
+	 * @return the open cells row by row
+	 */
+	long[] copyOpenRows()
+	{
+		return openRows.clone();
+	}
+
+	/**
+	 * Marks the given cell of row masks from copyOpenRows() as covered by a
+	 * block.
+	 *
+	 * @param free row masks of the free cells
+	 * @param row  row of the cell
+	 * @param col  column of the cell
+	 */
+	void cover(long[] free, int row, int col)
+	{
+		free[row * rowWords + (col >>> 6)] &= ~(1L << col);
+	}
+
+	/**
+	 * Returns true if the given cell is on the grid and set in the given row
+	 * masks from copyOpenRows().
+	 *
+	 * @param free row masks of the free cells
+	 * @param row  row of the cell
+	 * @param col  column of the cell
+	 * @return true if the cell is free
+	 */
+	boolean isFree(long[] free, int row, int col)
+	{
+		return row >= 0 && row < rows && col >= 0 && col < cols
+				&& (free[row * rowWords + (col >>> 6)] & (1L << col)) != 0;
+	}
+
+	/**
+	 * Reads the variable coordinate of every block of the given board into the
+	 * given array.
+	 *
+	 * @param board     a board with this layout
+	 * @param positions array with one entry per block to fill in
+	 */
+	public void readPositions(Board board, int[] positions)
+	{
+		ArrayList<Block> blocks = board.getBlocks();
+		for (int k = 0; k < positions.length; k++)
+		{
+			Block block = blocks.get(k);
+			positions[k] = horizontal[k] ? block.getFirstCol() : block.getFirstRow();
+		}
+	}
+
+	/**
+	 * Packs the given block coordinates into words longs of dest starting at
+	 * offset.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @param dest      array to write to
+	 * @param offset    index of the first word to write
+	 */
+	public void pack(int[] positions, long[] dest, int offset)
+	{
+		for (int w = 0; w < words; w++)
+		{
+			dest[offset + w] = 0;
+		}
+
+		for (int k = 0; k < positions.length; k++)
+		{
+			dest[offset + k / perWord] |= (long) positions[k] << (k % perWord * bits);
+		}
+	}
+
+	/**
+	 * Unpacks a position written by pack() back into block coordinates.
+	 *
+	 * @param src       array to read from
+	 * @param offset    index of the first word to read
+	 * @param positions array with one entry per block to fill in
+	 */
+	public void unpack(long[] src, int offset, int[] positions)
+	{
+		long mask = (1L << bits) - 1;
+		for (int k = 0; k < positions.length; k++)
+		{
+			positions[k] = (int) (src[offset + k / perWord] >>> (k % perWord * bits) & mask);
+		}
+	}
+
+	/**
+	 * Returns the coordinate of one block from a position written by pack().
+	 *
+	 * @param src    array to read from
+	 * @param offset index of the first word of the position
+	 * @param block  index of the block
+	 * @return the variable coordinate of the block
+	 */
+	public int getPosition(long[] src, int offset, int block)
+	{
+		return (int) (src[offset + block / perWord] >>> (block % perWord * bits) & ((1L << bits) - 1));
+	}
+
+	/**
+	 * Applies an encoded move to a position written by pack(), changing only the
+	 * bits of the block moved. The move is assumed to be legal.
+	 *
+	 * @param key    array holding the packed position
+	 * @param offset index of the first word of the position
+	 * @param move   the encoded move
+	 */
+	public void applyPacked(long[] key, int offset, int move)
+	{
+		int k = moveBlock(move);
+		int dir = move & 3;
+		int cells = moveCells(move);
+		boolean forward = dir == Direction.RIGHT.ordinal() || dir == Direction.DOWN.ordinal();
+		int shift = k % perWord * bits;
+		long position = getPosition(key, offset, k) + (forward ? cells : -cells);
+		key[offset + k / perWord] = key[offset + k / perWord] & ~(((1L << bits) - 1) << shift) | position << shift;
+	}
+
+	/**
+	 * Returns true if the given position solves the puzzle, that is, the end of
+	 * some block is on an exit. This matches Board.isGameOver().
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @return true if the position is solved
+	 */
+	public boolean isGoal(int[] positions)
+	{
+		for (int k = 0; k < positions.length; k++)
+		{
+			int end = positions[k] + length[k] - 1;
+			if (horizontal[k] ? isExit(lane[k], end) : isExit(end, lane[k]))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks the cells covered by blocks in the given position. The occupied array
+	 * is indexed row * cols + col and must have rows * cols entries.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @param occupied  array to fill in
+	 */
+	public void fillOccupied(int[] positions, boolean[] occupied)
+	{
+		Arrays.fill(occupied, false);
+		for (int k = 0; k < positions.length; k++)
+		{
+			int cell = horizontal[k] ? lane[k] * cols + positions[k] : positions[k] * cols + lane[k];
+			int step = horizontal[k] ? 1 : cols;
+			for (int i = 0; i < length[k]; i++)
+			{
+				occupied[cell + i * step] = true;
+			}
+		}
+	}
+
+	/**
+	 * Writes every legal single cell move of the given position into dest, in the
+	 * same order as Board.getAllPossibleMoves(): blocks in order, RIGHT before
+	 * LEFT for horizontal blocks and UP before DOWN for vertical blocks.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @param occupied  cells covered by blocks, see fillOccupied()
+	 * @param dest      array to write the encoded moves to, see getMaxMoves()
+	 * @return the number of moves written
+	 */
+	public int generateMoves(int[] positions, boolean[] occupied, int[] dest)
+	{
+		int count = 0;
+		for (int k = 0; k < positions.length; k++)
+		{
+			if (horizontal[k])
+			{
+				if (isFree(lane[k], positions[k] + length[k], occupied))
+				{
+					dest[count++] = encodeMove(k, Direction.RIGHT);
+				}
+				if (isFree(lane[k], positions[k] - 1, occupied))
+				{
+					dest[count++] = encodeMove(k, Direction.LEFT);
+				}
+			}
+
+			else
+			{
+				if (isFree(positions[k] - 1, lane[k], occupied))
+				{
+					dest[count++] = encodeMove(k, Direction.UP);
+				}
+				if (isFree(positions[k] + length[k], lane[k], occupied))
+				{
+					dest[count++] = encodeMove(k, Direction.DOWN);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the largest number of single cell moves a position of a board with
+	 * the given number of blocks can have. Each block can only move forward or
+	 * back along its lane, so this is two per block.
+	 *
+	 * @param blockCount number of blocks
+	 * @return size needed for the destination of a move generator
+	 */
+	public static int maxMoves(int blockCount)
+	{
+		return blockCount * 2;
+	}
+
+	/**
+	 * Returns the largest number of single cell moves generateMoves() can write,
+	 * see maxMoves().
+	 *
+	 * @return size needed for the destination of generateMoves()
+	 */
+	public int getMaxMoves()
+	{
+		return maxMoves(length.length);
+	}
+
+	/**
+	 * Returns the largest number of slides generateSlides() can write.
+	 *
+	 * @return size needed for the destination of generateSlides()
+	 */
+	public int getMaxSlides()
+	{
+		return length.length * 2 * Math.max(rows, cols);
+	}
+
+	/**
+	 * Writes every legal slide of the given position into dest. A slide moves one
+	 * block any number of free cells in one direction and counts as a single
+	 * move. Slides are listed block by block, in the same direction order as
+	 * generateMoves(), shortest first.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @param occupied  cells covered by blocks, see fillOccupied()
+	 * @param dest      array to write the encoded moves to, see getMaxSlides()
+	 * @return the number of moves written
+	 */
+	public int generateSlides(int[] positions, boolean[] occupied, int[] dest)
+	{
+		int count = 0;
+		for (int k = 0; k < positions.length; k++)
+		{
+			if (horizontal[k])
+			{
+				for (int c = 1; isFree(lane[k], positions[k] + length[k] - 1 + c, occupied); c++)
+				{
+					dest[count++] = encodeSlide(k, Direction.RIGHT, c);
+				}
+				for (int c = 1; isFree(lane[k], positions[k] - c, occupied); c++)
+				{
+					dest[count++] = encodeSlide(k, Direction.LEFT, c);
+				}
+			}
+
+			else
+			{
+				for (int c = 1; isFree(positions[k] - c, lane[k], occupied); c++)
+				{
+					dest[count++] = encodeSlide(k, Direction.UP, c);
+				}
+				for (int c = 1; isFree(positions[k] + length[k] - 1 + c, lane[k], occupied); c++)
+				{
+					dest[count++] = encodeSlide(k, Direction.DOWN, c);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Applies an encoded move to the given position. The move is assumed to be
+	 * legal. If occupied is not null the covered cells are updated as well.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @param occupied  cells covered by blocks, or null
+	 * @param move      the encoded move
+	 */
+	public void apply(int[] positions, boolean[] occupied, int move)
+	{
+		int k = moveBlock(move);
+		int dir = move & 3;
+		int cells = moveCells(move);
+		boolean forward = dir == Direction.RIGHT.ordinal() || dir == Direction.DOWN.ordinal();
+
+		if (occupied != null)
+		{
+			int step = horizontal[k] ? 1 : cols;
+			int first = horizontal[k] ? lane[k] * cols + positions[k] : positions[k] * cols + lane[k];
+			int shift = (forward ? cells : -cells) * step;
+			for (int i = 0; i < length[k]; i++)
+			{
+				occupied[first + i * step] = false;
+			}
+			for (int i = 0; i < length[k]; i++)
+			{
+				occupied[first + shift + i * step] = true;
+			}
+		}
+
+		positions[k] += forward ? cells : -cells;
+	}
+
+	/**
+	 * Encodes a move of the given block in the given direction as an int.
+	 *
+	 * @param block index of the block
+	 * @param dir   direction of the move
+	 * @return the encoded move
+	 */
+	public static int encodeMove(int block, Direction dir)
+	{
+		return block << 2 | dir.ordinal();
+	}
+
+	/**
+	 * Returns the index of the block moved by an encoded move.
+	 *
+	 * @param move the encoded move
+	 * @return index of the block
+	 */
+	public static int moveBlock(int move)
+	{
+		return (move >>> 2) & 0x3FFFFF;
+	}
+
+	/**
+	 * Encodes a slide of the given block by the given number of cells in the
+	 * given direction as an int.
+	 *
+	 * @param block index of the block
+	 * @param dir   direction of the move
+	 * @param cells number of cells to move, from 1 to 256
+	 * @return the encoded move
+	 */
+	public static int encodeSlide(int block, Direction dir, int cells)
+	{
+		return (cells - 1) << 24 | block << 2 | dir.ordinal();
+	}
+
+	/**
+	 * Returns the number of cells moved by an encoded move.
+	 *
+	 * @param move the encoded move
+	 * @return number of cells
+	 */
+	public static int moveCells(int move)
+	{
+		return (move >>> 24) + 1;
+	}
+
+	/**
+	 * Returns the direction of an encoded move.
+	 *
+	 * @param move the encoded move
+	 * @return direction of the move
+	 */
+	public static Direction moveDirection(int move)
+	{
+		return DIRECTIONS[move & 3];
+	}
+
+	/**
+	 * Returns the encoded move that undoes the given encoded move.
+	 *
+	 * @param move the encoded move
+	 * @return the opposite move
+	 */
+	public static int opposite(int move)
+	{
+		// LEFT/RIGHT and UP/DOWN have adjacent ordinals
+		return move ^ 1;
+	}
+
+	/**
+	 * Returns true if the given cell is open and not covered by a block.
+	 */
+	private boolean isFree(int row, int col, boolean[] occupied)
+	{
+		return isOpen(row, col) && !occupied[row * cols + col];
+	}
+}
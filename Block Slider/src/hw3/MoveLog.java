@@ -0,0 +1,418 @@
+package hw3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import api.Direction;
+
+/**
+ * A compact record of single cell moves. Consecutive moves of the same block in
+ * the same direction are kept as one run, an int encoded as by
+ * Layout.encodeSlide() with the block index and the number of moves in the
+ * run, so a log takes at most four bytes per move and usually much less. Block
+ * indexes are those of Board.getBlocks(), which do not change as the blocks
+ * move, so a log can be replayed onto a fresh board of the same puzzle.
+ * <p>
+ * A log is written to a file as a four byte header followed by each run in a
+ * variable number of bytes, two for most runs. A Writer streams moves to such a
+ * file as they are made, holding only the run in progress in memory.
+ */
+public class MoveLog
+{
+	/**
+	 * First four bytes of a move log file.
+	 */
+	private static final int MAGIC = 0x42534C47;
+
+	/**
+	 * Size of the buffer used to read or write a file.
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Largest number of moves in one run, the most the slide encoding can hold.
+	 */
+	private static final int MAX_RUN = 256;
+
+	/**
+	 * The runs, each encoded as a slide.
+	 */
+	private int[] runs = new int[16];
+
+	/**
+	 * Number of runs in use.
+	 */
+	private int runCount;
+
+	/**
+	 * Number of single cell moves in all runs.
+	 */
+	private int size;
+
+	/**
+	 * Adds a single cell move of the given block to the end of the log.
+	 *
+	 * @param block index of the block in Board.getBlocks()
+	 * @param dir   direction of the move
+	 */
+	public void append(int block, Direction dir)
+	{
+		size++;
+		if (runCount > 0)
+		{
+			int last = runs[runCount - 1];
+			if ((last & 0xFFFFFF) == Layout.encodeMove(block, dir) && Layout.moveCells(last) < MAX_RUN)
+			{
+				runs[runCount - 1] = last + (1 << 24);
+				return;
+			}
+		}
+
+		if (runCount == runs.length)
+		{
+			runs = Arrays.copyOf(runs, runs.length * 2);
+		}
+		runs[runCount++] = Layout.encodeMove(block, dir);
+	}
+
+	/**
+	 * Removes the last move from the log.
+	 *
+	 * @return the move removed, encoded as by Layout.encodeMove()
+	 * @throws IllegalStateException if the log is empty
+	 */
+	public int removeLast()
+	{
+		if (size == 0)
+		{
+			throw new IllegalStateException("The move log is empty");
+		}
+		size--;
+		int last = runs[runCount - 1];
+		if (Layout.moveCells(last) == 1)
+		{
+			runCount--;
+		}
+		else
+		{
+			runs[runCount - 1] = last - (1 << 24);
+		}
+		return last & 0xFFFFFF;
+	}
+
+	/**
+	 * Removes every move from the log.
+	 */
+	public void clear()
+	{
+		runCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of single cell moves in the log.
+	 *
+	 * @return number of moves
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of runs the moves are kept in.
+	 *
+	 * @return number of runs
+	 */
+	public int getRunCount()
+	{
+		return runCount;
+	}
+
+	/**
+	 * Returns the given run, encoded as by Layout.encodeSlide(), so
+	 * Layout.moveBlock(), Layout.moveDirection() and Layout.moveCells() give its
+	 * block, direction and number of moves.
+	 *
+	 * @param i index of the run
+	 * @return the encoded run
+	 */
+	public int getRun(int i)
+	{
+		if (i >= runCount)
+		{
+			throw new IndexOutOfBoundsException("Run " + i + " of " + runCount);
+		}
+		return runs[i];
+	}
+
+	/**
+	 * Makes every move of the log on the given board, which should be a board of
+	 * the same puzzle at the position the log was started from. Each block is
+	 * grabbed, moved through its run and released.
+	 *
+	 * @param board the board to move the blocks of
+	 */
+	public void replay(Board board)
+	{
+		for (int i = 0; i < runCount; i++)
+		{
+			Block block = board.getBlocks().get(Layout.moveBlock(runs[i]));
+			Direction dir = Layout.moveDirection(runs[i]);
+			board.grabBlockAtCell(block.getFirstRow(), block.getFirstCol());
+			for (int c = 0; c < Layout.moveCells(runs[i]); c++)
+			{
+				board.moveGrabbedBlock(dir);
+			}
+			board.releaseBlock();
+		}
+	}
+
+	/**
+	 * Writes the log to the given file, replacing its contents.
+	 *
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(Path file) throws IOException
+	{
+		Files.deleteIfExists(file);
+		try (Writer writer = new Writer(file))
+		{
+			for (int i = 0; i < runCount; i++)
+			{
+				writer.writeRun(runs[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a log from a file written by write() or by a Writer.
+	 *
+	 * @param file the file to read
+	 * @return the moves of the file
+	 * @throws IOException if the file cannot be read or is not a move log
+	 */
+	public static MoveLog read(Path file) throws IOException
+	{
+		MoveLog log = new MoveLog();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+			buffer.flip();
+			if (!fill(channel, buffer, 4) || buffer.getInt() != MAGIC)
+			{
+				throw new IOException(file + " is not a move log");
+			}
+
+			while (fill(channel, buffer, 1))
+			{
+				int value = 0;
+				int shift = 0;
+				byte b;
+				do
+				{
+					if (!fill(channel, buffer, 1))
+					{
+						throw new IOException(file + " ends in the middle of a run");
+					}
+					b = buffer.get();
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+
+				int move = value >>> 8;
+				for (int c = 0; c <= (value & 0xFF); c++)
+				{
+					log.append(Layout.moveBlock(move), Layout.moveDirection(move));
+				}
+			}
+		}
+		return log;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder buff = new StringBuilder("[");
+		for (int i = 0; i < runCount; i++)
+		{
+			if (i > 0)
+			{
+				buff.append(", ");
+			}
+			buff.append(Layout.moveBlock(runs[i])).append(' ').append(Layout.moveDirection(runs[i]));
+			if (Layout.moveCells(runs[i]) > 1)
+			{
+				buff.append(" x").append(Layout.moveCells(runs[i]));
+			}
+		}
+		return buff.append(']').toString();
+	}
+
+	/**
+	 * Makes sure at least the given number of bytes are buffered, returns false
+	 * if the channel ends first.
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException
+	{
+		while (buffer.remaining() < bytes)
+		{
+			buffer.compact();
+			int read = channel.read(buffer);
+			buffer.flip();
+			if (read < 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Streams moves to the end of a move log file as they are made. Moves are
+	 * gathered into runs the same way as in a MoveLog, and each run goes to a
+	 * buffer as soon as a move of another block or direction ends it, so memory
+	 * use does not grow with the number of moves. A new file gets the header; an
+	 * existing one is added to, so a log can be continued across sessions. The
+	 * buffer is written to the file when it fills and on close().
+	 */
+	public static class Writer implements Closeable
+	{
+		/**
+		 * Channel of the file being written.
+		 */
+		private FileChannel channel;
+
+		/**
+		 * Bytes not yet written to the channel.
+		 */
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		/**
+		 * The run in progress, encoded as a slide, if there is one.
+		 */
+		private int run;
+
+		/**
+		 * True if a run is in progress. The encoded run cannot say so itself, since
+		 * runs of more than 128 moves set its sign bit.
+		 */
+		private boolean running;
+
+		/**
+		 * Opens the given file for appending, creating it if needed. A file that is
+		 * not empty must already be a move log.
+		 *
+		 * @param file the file to write
+		 * @throws IOException if the file cannot be opened or is not a move log
+		 */
+		public Writer(Path file) throws IOException
+		{
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			if (channel.size() == 0)
+			{
+				buffer.putInt(MAGIC);
+				return;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(4);
+			int read = 0;
+			while (header.hasRemaining() && read >= 0)
+			{
+				read = channel.read(header, header.position());
+			}
+			if (header.hasRemaining() || header.getInt(0) != MAGIC)
+			{
+				channel.close();
+				throw new IOException(file + " is not a move log");
+			}
+			channel.position(channel.size());
+		}
+
+		/**
+		 * Adds a single cell move of the given block to the log.
+		 *
+		 * @param block index of the block in Board.getBlocks()
+		 * @param dir   direction of the move
+		 * @throws IOException if the file cannot be written
+		 */
+		public void append(int block, Direction dir) throws IOException
+		{
+			int move = Layout.encodeMove(block, dir);
+			if (running && (run & 0xFFFFFF) == move && Layout.moveCells(run) < MAX_RUN)
+			{
+				run += 1 << 24;
+				return;
+			}
+			if (running)
+			{
+				writeRun(run);
+			}
+			run = move;
+			running = true;
+		}
+
+		/**
+		 * Writes the run in progress and everything buffered to the file, so the
+		 * file holds every move appended so far.
+		 *
+		 * @throws IOException if the file cannot be written
+		 */
+		public void flush() throws IOException
+		{
+			if (running)
+			{
+				writeRun(run);
+				running = false;
+			}
+			drain();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+			channel.close();
+		}
+
+		/**
+		 * Buffers one run as the move shifted above the number of moves minus one,
+		 * in seven bit groups.
+		 */
+		private void writeRun(int encoded) throws IOException
+		{
+			if (buffer.remaining() < 5)
+			{
+				drain();
+			}
+			int value = (encoded & 0xFFFFFF) << 8 | (Layout.moveCells(encoded) - 1);
+			while ((value & ~0x7F) != 0)
+			{
+				buffer.put((byte) (value & 0x7F | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+
+		/**
+		 * Writes everything buffered to the channel.
+		 */
+		private void drain() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package hw3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A StateStore kept outside the Java heap, so that searches over hundreds of
+ * millions of positions neither fill the heap nor slow down the garbage
+ * collector. The table works like StateTable but never grows: its capacity is
+ * fixed by a byte budget given at construction, and adding a position to a full
+ * table throws an IllegalStateException. Memory is either allocated directly or
+ * mapped from a file, which lets the operating system page it out to disk.
+ */
+public class OffHeapStateTable implements StateStore
+{
+	/**
+	 * Size of one buffer segment, a single ByteBuffer can hold at most 2GB.
+	 */
+	private static final int SEGMENT_BYTES = 1 << 30;
+
+	/**
+	 * Number of longs in one key.
+	 */
+	private int words;
+
+	/**
+	 * Largest number of positions the table can hold.
+	 */
+	private int capacity;
+
+	/**
+	 * Number of hash slots, a power of two at least twice the capacity.
+	 */
+	private long slotCount;
+
+	/**
+	 * The hash index, each slot holds an id plus one, or zero if empty.
+	 */
+	private Region slots;
+
+	/**
+	 * Keys in the order they were added, key i starts at long i * words.
+	 */
+	private Region keys;
+
+	/**
+	 * Value associated with each id.
+	 */
+	private Region values;
+
+	/**
+	 * Number of positions in the table.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty table in directly allocated memory of at most the given
+	 * number of bytes.
+	 *
+	 * @param words       number of longs in one key
+	 * @param budgetBytes largest number of bytes to allocate
+	 */
+	public OffHeapStateTable(int words, long budgetBytes)
+	{
+		this.words = words;
+		size(budgetBytes);
+		slots = new Region(slotCount * 4);
+		keys = new Region((long) capacity * words * 8);
+		values = new Region((long) capacity * 8);
+	}
+
+	/**
+	 * Constructs an empty table in memory mapped from the given file, using at
+	 * most the given number of bytes of it. Any existing content of the file is
+	 * overwritten, so the file belongs to this table for as long as it is used:
+	 * another table mapping the same file would wipe this one and then share its
+	 * memory.
+	 *
+	 * @param words       number of longs in one key
+	 * @param budgetBytes largest number of bytes to map
+	 * @param file        file to map
+	 */
+	public OffHeapStateTable(int words, long budgetBytes, File file)
+	{
+		this.words = words;
+		size(budgetBytes);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			slots = new Region(slotCount * 4, channel, 0);
+			keys = new Region((long) capacity * words * 8, channel, slotCount * 4);
+			values = new Region((long) capacity * 8, channel, slotCount * 4 + (long) capacity * words * 8);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the largest number of positions the table can hold.
+	 *
+	 * @return capacity of the table
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public int getWords()
+	{
+		return words;
+	}
+
+	@Override
+	public int find(long[] key, int offset)
+	{
+		long mask = slotCount - 1;
+		long slot = StateTable.hash(key, offset, words) & mask;
+		int entry;
+		while ((entry = slots.getInt(slot * 4)) != 0)
+		{
+			int id = entry - 1;
+			if (matches(id, key, offset))
+			{
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	@Override
+	public int add(long[] key, int offset)
+	{
+		long mask = slotCount - 1;
+		long slot = StateTable.hash(key, offset, words) & mask;
+		int entry;
+		while ((entry = slots.getInt(slot * 4)) != 0)
+		{
+			int id = entry - 1;
+			if (matches(id, key, offset))
+			{
+				return -(id + 1);
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == capacity)
+		{
+			throw new IllegalStateException("State budget exhausted after " + size + " positions");
+		}
+
+		int id = size;
+		long start = (long) id * words * 8;
+		for (int w = 0; w < words; w++)
+		{
+			keys.putLong(start + w * 8, key[offset + w]);
+		}
+		values.putLong((long) id * 8, 0);
+		slots.putInt(slot * 4, id + 1);
+		size++;
+		return id;
+	}
+
+	@Override
+	public void getKey(int id, long[] dest, int offset)
+	{
+		long start = (long) id * words * 8;
+		for (int w = 0; w < words; w++)
+		{
+			dest[offset + w] = keys.getLong(start + w * 8);
+		}
+	}
+
+	@Override
+	public long getValue(int id)
+	{
+		return values.getLong((long) id * 8);
+	}
+
+	@Override
+	public void setValue(int id, long value)
+	{
+		values.putLong((long) id * 8, value);
+	}
+
+	@Override
+	public void clear()
+	{
+		for (long slot = 0; slot < slotCount; slot++)
+		{
+			slots.putInt(slot * 4, 0);
+		}
+		size = 0;
+	}
+
+	/**
+	 * Chooses the largest slot count, a power of two, for which the slots plus
+	 * the keys and values of half as many positions fit in the budget.
+	 */
+	private void size(long budgetBytes)
+	{
+		long perSlot = 4 + (words * 8 + 8) / 2;
+		long count = Long.highestOneBit(Math.max(2, budgetBytes / perSlot));
+		count = Math.min(count, 1L << 32);
+		slotCount = count;
+		capacity = (int) Math.min(count / 2, Integer.MAX_VALUE - 1);
+	}
+
+	/**
+	 * Returns true if the key with the given id equals the given key.
+	 */
+	private boolean matches(int id, long[] key, int offset)
+	{
+		long start = (long) id * words * 8;
+		for (int w = 0; w < words; w++)
+		{
+			if (keys.getLong(start + w * 8) != key[offset + w])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A run of off-heap bytes of any length, split into buffers of at most
+	 * SEGMENT_BYTES. Longs and ints are always aligned, so they never straddle two
+	 * segments.
+	 */
+	private static class Region
+	{
+		/**
+		 * The buffers holding the bytes of this region.
+		 */
+		private ByteBuffer[] segments;
+
+		/**
+		 * Allocates a zeroed region of the given number of bytes directly.
+		 */
+		Region(long bytes)
+		{
+			segments = new ByteBuffer[segmentCount(bytes)];
+			for (int i = 0; i < segments.length; i++)
+			{
+				segments[i] = ByteBuffer.allocateDirect(segmentLength(bytes, i)).order(ByteOrder.nativeOrder());
+			}
+		}
+
+		/**
+		 * Maps a region of the given number of bytes from the channel, starting at
+		 * the given position of the file.
+		 */
+		Region(long bytes, FileChannel channel, long position) throws IOException
+		{
+			segments = new ByteBuffer[segmentCount(bytes)];
+			for (int i = 0; i < segments.length; i++)
+			{
+				long start = position + (long) i * SEGMENT_BYTES;
+				segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentLength(bytes, i))
+						.order(ByteOrder.nativeOrder());
+			}
+		}
+
+		static int segmentCount(long bytes)
+		{
+			return (int) Math.max(1, (bytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+		}
+
+		static int segmentLength(long bytes, int segment)
+		{
+			return (int) Math.max(8, Math.min(SEGMENT_BYTES, bytes - (long) segment * SEGMENT_BYTES));
+		}
+
+		long getLong(long index)
+		{
+			return segments[(int) (index / SEGMENT_BYTES)].getLong((int) (index % SEGMENT_BYTES));
+		}
+
+		void putLong(long index, long value)
+		{
+			segments[(int) (index / SEGMENT_BYTES)].putLong((int) (index % SEGMENT_BYTES), value);
+		}
+
+		int getInt(long index)
+		{
+			return segments[(int) (index / SEGMENT_BYTES)].getInt((int) (index % SEGMENT_BYTES));
+		}
+
+		void putInt(long index, int value)
+		{
+			segments[(int) (index / SEGMENT_BYTES)].putInt((int) (index % SEGMENT_BYTES), value);
+		}
+	}
+}
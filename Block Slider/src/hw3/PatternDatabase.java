@@ -0,0 +1,432 @@
+package hw3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A heuristic that looks up exact distances in a precomputed table. The table
+ * covers a pattern: a subset of the blocks that includes every block able to
+ * reach the exit, plus as many of the blocks in their way as fit in the table.
+ * For every placement of the pattern blocks it stores the number of moves
+ * needed to solve the puzzle with all other blocks removed. Removing blocks
+ * can only make the puzzle easier, so this never overestimates, and the
+ * estimate is the larger of the table entry and a BlockingHeuristic.
+ * <p>
+ * Building a table takes one breadth-first search over all placements of the
+ * pattern. Tables are saved in a cache directory under a name derived from a
+ * hash of the walls, the exit and the pattern blocks, and are memory mapped
+ * when found there, so boards with the same frame share one table.
+ */
+public class PatternDatabase implements Heuristic
+{
+	/**
+	 * Largest number of entries in a table.
+	 */
+	private static final int MAX_ENTRIES = 1 << 22;
+
+	/**
+	 * Marks the start of a table file. Changed when the meaning of the entries
+	 * changes, so tables cached by older versions are rebuilt.
+	 */
+	private static final int MAGIC = 0x42535045;
+
+	/**
+	 * Table entry of placements from which the goal cannot be reached.
+	 */
+	private static final int UNREACHABLE = 0xFF;
+
+	/**
+	 * Largest distance stored in the table. Placements farther from the goal are
+	 * stored as this distance, which still underestimates them.
+	 */
+	private static final int MAX_DISTANCE = UNREACHABLE - 1;
+
+	/**
+	 * Layout of the board.
+	 */
+	private Layout layout;
+
+	/**
+	 * Heuristic combined with the table.
+	 */
+	private BlockingHeuristic blocking;
+
+	/**
+	 * Indexes of the pattern blocks.
+	 */
+	private int[] pattern;
+
+	/**
+	 * Index step of each pattern block, the product of the ranges of the
+	 * pattern blocks before it.
+	 */
+	private int[] strides;
+
+	/**
+	 * Number of entries in the table.
+	 */
+	private int entries;
+
+	/**
+	 * Distance of each placement of the pattern, or UNREACHABLE. Null if the
+	 * blocks able to reach the exit do not fit in a table.
+	 */
+	private ByteBuffer table;
+
+	/**
+	 * Constructs the pattern database for the given layout, loading it from the
+	 * cache directory if it was built before and building and saving it
+	 * otherwise.
+	 *
+	 * @param layout    layout of the board
+	 * @param directory cache directory for tables
+	 */
+	public PatternDatabase(Layout layout, File directory)
+	{
+		this.layout = layout;
+		blocking = new BlockingHeuristic(layout);
+		choosePattern();
+		if (pattern == null)
+		{
+			return;
+		}
+
+		int[] descriptor = describe();
+		File file = new File(directory, String.format("pdb-%016x.bin", hash(descriptor)));
+		try
+		{
+			table = load(file, descriptor);
+			if (table == null)
+			{
+				byte[] distances = build();
+				save(file, descriptor, distances);
+				table = load(file, descriptor);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the number of blocks in the pattern, zero if no table could be
+	 * built.
+	 *
+	 * @return number of pattern blocks
+	 */
+	public int getPatternSize()
+	{
+		return pattern == null ? 0 : pattern.length;
+	}
+
+	@Override
+	public int estimate(int[] positions)
+	{
+		int estimate = blocking.estimate(positions);
+		if (table == null || estimate >= UNSOLVABLE)
+		{
+			return estimate;
+		}
+
+		int index = 0;
+		for (int i = 0; i < pattern.length; i++)
+		{
+			index += positions[pattern[i]] * strides[i];
+		}
+		int distance = table.get(index) & 0xFF;
+		return distance == UNREACHABLE ? UNSOLVABLE : Math.max(estimate, distance);
+	}
+
+	/**
+	 * Picks the pattern blocks: every block that can reach the exit, then blocks
+	 * crossing their lanes, then any other block, while the table stays within
+	 * MAX_ENTRIES. Leaves pattern null if the first group alone is too big.
+	 */
+	private void choosePattern()
+	{
+		int n = layout.getBlockCount();
+		int[] candidates = blocking.getCandidates();
+		if (candidates.length == 0)
+		{
+			return;
+		}
+
+		boolean[] chosen = new boolean[n];
+		int[] order = new int[n];
+		int count = 0;
+		long size = 1;
+		for (int k : candidates)
+		{
+			size *= range(k);
+			chosen[k] = true;
+			order[count++] = k;
+		}
+		if (size > MAX_ENTRIES)
+		{
+			return;
+		}
+
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int k = 0; k < n; k++)
+			{
+				if (!chosen[k] && (pass == 1 || crossesCandidate(k, candidates))
+						&& size * range(k) <= MAX_ENTRIES)
+				{
+					size *= range(k);
+					chosen[k] = true;
+					order[count++] = k;
+				}
+			}
+		}
+
+		pattern = Arrays.copyOf(order, count);
+		strides = new int[count];
+		int stride = 1;
+		for (int i = 0; i < count; i++)
+		{
+			strides[i] = stride;
+			stride *= range(pattern[i]);
+		}
+		entries = stride;
+	}
+
+	/**
+	 * Returns true if block k is perpendicular to some candidate, so its lane
+	 * crosses the candidate's lane.
+	 */
+	private boolean crossesCandidate(int k, int[] candidates)
+	{
+		for (int c : candidates)
+		{
+			if (layout.isHorizontal(k) != layout.isHorizontal(c))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of coordinates block k can take, counting positions
+	 * outside the walls so the index stays simple.
+	 */
+	private int range(int k)
+	{
+		int size = layout.isHorizontal(k) ? layout.getColSize() : layout.getRowSize();
+		return size - layout.getLength(k) + 1;
+	}
+
+	/**
+	 * Computes the distance of every placement of the pattern by breadth-first
+	 * search from all placements that solve the puzzle.
+	 */
+	private byte[] build()
+	{
+		byte[] distances = new byte[entries];
+		Arrays.fill(distances, (byte) UNREACHABLE);
+		int[] queue = new int[entries];
+		int head = 0;
+		int tail = 0;
+
+		int[] positions = new int[layout.getBlockCount()];
+		boolean[] occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		int[] moves = new int[layout.getMaxMoves()];
+
+		for (int index = 0; index < entries; index++)
+		{
+			if (decode(index, positions, occupied) && layout.isGoal(positions))
+			{
+				distances[index] = 0;
+				queue[tail++] = index;
+			}
+		}
+
+		while (head < tail)
+		{
+			int index = queue[head++];
+			int distance = distances[index] & 0xFF;
+			decode(index, positions, occupied);
+			int count = layout.generateMoves(positions, occupied, moves);
+			for (int i = 0; i < count; i++)
+			{
+				int k = Layout.moveBlock(moves[i]);
+				int slot = slotOf(k);
+				if (slot < 0)
+				{
+					continue;
+				}
+				boolean forward = Layout.moveDirection(moves[i]).ordinal() % 2 == 1;
+				int next = index + (forward ? strides[slot] : -strides[slot]);
+				if ((distances[next] & 0xFF) == UNREACHABLE)
+				{
+					distances[next] = (byte) Math.min(distance + 1, MAX_DISTANCE);
+					queue[tail++] = next;
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Places the pattern blocks of the given table index, parking every other
+	 * block on a coordinate that cannot match the goal, and marks the cells they
+	 * cover. Returns false if the placement is not legal.
+	 */
+	private boolean decode(int index, int[] positions, boolean[] occupied)
+	{
+		Arrays.fill(occupied, false);
+		Arrays.fill(positions, -layout.getRowSize() - layout.getColSize());
+		int cols = layout.getColSize();
+		boolean legal = true;
+		for (int i = 0; i < pattern.length; i++)
+		{
+			int k = pattern[i];
+			int coordinate = index / strides[i] % range(k);
+			positions[k] = coordinate;
+			for (int c = 0; c < layout.getLength(k); c++)
+			{
+				int row = layout.isHorizontal(k) ? layout.getLane(k) : coordinate + c;
+				int col = layout.isHorizontal(k) ? coordinate + c : layout.getLane(k);
+				if (!layout.isOpen(row, col) || occupied[row * cols + col])
+				{
+					legal = false;
+				}
+				else
+				{
+					occupied[row * cols + col] = true;
+				}
+			}
+		}
+		return legal;
+	}
+
+	/**
+	 * Returns the place of block k in the pattern, or -1 if it is not in it.
+	 */
+	private int slotOf(int k)
+	{
+		for (int i = 0; i < pattern.length; i++)
+		{
+			if (pattern[i] == k)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Lists everything the table depends on: the walls and exits of the grid and
+	 * the lane, length and orientation of each pattern block.
+	 */
+	private int[] describe()
+	{
+		int rows = layout.getRowSize();
+		int cols = layout.getColSize();
+		int[] descriptor = new int[3 + rows * cols + pattern.length * 3];
+		int d = 0;
+		descriptor[d++] = rows;
+		descriptor[d++] = cols;
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < cols; j++)
+			{
+				descriptor[d++] = layout.isExit(i, j) ? 2 : layout.isOpen(i, j) ? 1 : 0;
+			}
+		}
+		descriptor[d++] = pattern.length;
+		for (int k : pattern)
+		{
+			descriptor[d++] = layout.isHorizontal(k) ? 1 : 0;
+			descriptor[d++] = layout.getLength(k);
+			descriptor[d++] = layout.getLane(k);
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Mixes a descriptor into a 64 bit hash used to name the table file.
+	 */
+	private static long hash(int[] descriptor)
+	{
+		long h = 0xCBF29CE484222325L;
+		for (int value : descriptor)
+		{
+			h = (h ^ value) * 0x100000001B3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Maps the table stored in the given file, or returns null if there is no
+	 * such file or it was built for a different descriptor.
+	 */
+	private ByteBuffer load(File file, int[] descriptor) throws IOException
+	{
+		if (!file.isFile())
+		{
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			long headerBytes = 4L * (descriptor.length + 3);
+			if (channel.size() != headerBytes + entries)
+			{
+				return null;
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerBytes);
+			IntBuffer ints = header.asIntBuffer();
+			if (ints.get() != MAGIC || ints.get() != descriptor.length)
+			{
+				return null;
+			}
+			for (int value : descriptor)
+			{
+				if (ints.get() != value)
+				{
+					return null;
+				}
+			}
+			if (ints.get() != entries)
+			{
+				return null;
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, headerBytes, entries);
+		}
+	}
+
+	/**
+	 * Writes the descriptor and distances to the given file.
+	 */
+	private static void save(File file, int[] descriptor, byte[] distances) throws IOException
+	{
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		ByteBuffer header = ByteBuffer.allocate(4 * (descriptor.length + 3));
+		header.putInt(MAGIC).putInt(descriptor.length);
+		for (int value : descriptor)
+		{
+			header.putInt(value);
+		}
+		header.putInt(distances.length);
+		header.flip();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer body = ByteBuffer.wrap(distances);
+			while (header.hasRemaining() || body.hasRemaining())
+			{
+				channel.write(new ByteBuffer[] { header, body });
+			}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package hw3;
+
+/**
+ * Receives periodic reports on a running search from a SearchControl.
+ */
+public interface ProgressListener
+{
+	/**
+	 * Called on the searching thread, at most once per reporting interval.
+	 *
+	 * @param depth          deepest level or bound the search has reached
+	 * @param nodesExpanded  number of positions expanded so far
+	 * @param nodesPerSecond positions expanded per second since the search
+	 *                       started
+	 * @param best           shortest solution found so far, or null if none
+	 */
+	void progress(int depth, long nodesExpanded, double nodesPerSecond, SolverResult best);
+}
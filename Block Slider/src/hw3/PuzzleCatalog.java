@@ -0,0 +1,436 @@
+package hw3;
+
+import static api.CellType.*;
+import static api.Orientation.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import api.Cell;
+import api.DescriptionUtil;
+
+/**
+ * A file of puzzles in a compact binary format, any of which can be loaded
+ * without reading the ones before it. Each puzzle is stored as its number of
+ * rows and columns, a bit mask of its walls and one of its exits, and the first
+ * row, first column, length and orientation of each block in three bytes. An
+ * index of the offset of every puzzle and a trailer giving the offset of the
+ * index end the file, so opening a catalog reads the trailer and maps the
+ * index, and loading puzzle n is a single read at its offset.
+ * <p>
+ * Catalogs are written with a Writer, or converted from the text format read
+ * by DescriptionUtil with convert(). Grids may have up to 255 rows and columns.
+ */
+public class PuzzleCatalog implements Closeable
+{
+	/**
+	 * First and last four bytes of a catalog file.
+	 */
+	private static final int MAGIC = 0x42535043;
+
+	/**
+	 * Size of the trailer: index offset, puzzle count and magic number.
+	 */
+	private static final int TRAILER_BYTES = 16;
+
+	/**
+	 * Size of the buffer used to write a file.
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Channel of the catalog file.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Offset of each puzzle, mapped from the index at the end of the file.
+	 */
+	private LongBuffer offsets;
+
+	/**
+	 * Offset of the index, which is where the last puzzle ends.
+	 */
+	private long indexOffset;
+
+	/**
+	 * Number of puzzles in the catalog.
+	 */
+	private int count;
+
+	/**
+	 * Opens the given catalog file.
+	 *
+	 * @param file the catalog to read
+	 * @throws IOException if the file cannot be read or is not a catalog
+	 */
+	public PuzzleCatalog(Path file) throws IOException
+	{
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		long size = channel.size();
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+		if (size < 4 + TRAILER_BYTES || channel.read(trailer, size - TRAILER_BYTES) != TRAILER_BYTES)
+		{
+			channel.close();
+			throw new IOException(file + " is not a puzzle catalog");
+		}
+		trailer.flip();
+		indexOffset = trailer.getLong();
+		count = trailer.getInt();
+		if (trailer.getInt() != MAGIC || indexOffset + 8L * count != size - TRAILER_BYTES)
+		{
+			channel.close();
+			throw new IOException(file + " is not a puzzle catalog");
+		}
+		offsets = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 8L * count).asLongBuffer();
+	}
+
+	/**
+	 * Returns the number of puzzles in the catalog.
+	 *
+	 * @return number of puzzles
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Loads the given puzzle as a new board at its starting position.
+	 *
+	 * @param n index of the puzzle, from 0
+	 * @return a board of the puzzle
+	 * @throws IOException if the file cannot be read
+	 */
+	public Board getBoard(int n) throws IOException
+	{
+		ByteBuffer record = read(n);
+		int rows = record.get() & 0xFF;
+		int cols = record.get() & 0xFF;
+		byte[] walls = new byte[(rows * cols + 7) / 8];
+		byte[] exits = new byte[walls.length];
+		record.get(walls).get(exits);
+
+		Cell[][] grid = new Cell[rows][cols];
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < cols; j++)
+			{
+				int cell = i * cols + j;
+				grid[i][j] = new Cell(isSet(walls, cell) ? WALL : isSet(exits, cell) ? EXIT : FLOOR, i, j);
+			}
+		}
+
+		int blockCount = record.getShort() & 0xFFFF;
+		ArrayList<Block> blocks = new ArrayList<Block>(blockCount);
+		for (int k = 0; k < blockCount; k++)
+		{
+			int row = record.get() & 0xFF;
+			int col = record.get() & 0xFF;
+			int shape = record.get() & 0xFF;
+			blocks.add(new Block(row, col, shape & 0x7F, (shape & 0x80) != 0 ? VERTICAL : HORIZONTAL));
+		}
+		return new Board(grid, blocks);
+	}
+
+	/**
+	 * Loads the given puzzle in the text form read by DescriptionUtil, as used by
+	 * Board(String[][]). Only what the game reads is stored, so descriptions
+	 * GridUtil does not know come back as floors.
+	 *
+	 * @param n index of the puzzle, from 0
+	 * @return a 2D array of strings describing the puzzle
+	 * @throws IOException if the file cannot be read
+	 */
+	public String[][] getDescription(int n) throws IOException
+	{
+		Board board = getBoard(n);
+		String[][] desc = new String[board.getRowSize()][board.getColSize()];
+		for (int i = 0; i < desc.length; i++)
+		{
+			for (int j = 0; j < desc[i].length; j++)
+			{
+				Cell cell = board.getCell(i, j);
+				desc[i][j] = cell.isWall() ? "*" : cell.isExit() ? "e" : ".";
+			}
+		}
+
+		for (Block block : board.getBlocks())
+		{
+			boolean horizontal = block.getOrientation() == HORIZONTAL;
+			for (int c = 0; c < block.getLength(); c++)
+			{
+				int row = block.getFirstRow() + (horizontal ? 0 : c);
+				int col = block.getFirstCol() + (horizontal ? c : 0);
+				if (c == 0)
+				{
+					desc[row][col] = horizontal ? "[" : "^";
+				}
+				else if (c == block.getLength() - 1)
+				{
+					desc[row][col] = horizontal ? "]" : "v";
+				}
+				else
+				{
+					desc[row][col] = "#";
+				}
+			}
+		}
+		return desc;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		offsets = null;
+		channel.close();
+	}
+
+	/**
+	 * Converts a file in the text format read by DescriptionUtil into a catalog,
+	 * streaming the puzzles so the text file is never held in memory at once.
+	 *
+	 * @param textFile    path of the text file to read
+	 * @param catalogFile the catalog to write, replaced if it exists
+	 * @return the number of puzzles converted
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public static int convert(String textFile, Path catalogFile) throws IOException
+	{
+		try (Stream<String[][]> descriptions = DescriptionUtil.streamBoardDescriptions(textFile);
+				Writer writer = new Writer(catalogFile))
+		{
+			descriptions.forEachOrdered(desc -> writer.add(desc));
+			return writer.size();
+		}
+	}
+
+	/**
+	 * Converts a text puzzle file into a catalog.
+	 * <p>
+	 * Usage: java hw3.PuzzleCatalog games.txt games.bin
+	 *
+	 * @param args the text file and the catalog file
+	 * @throws IOException if either file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 2)
+		{
+			System.err.println("Usage: java hw3.PuzzleCatalog <text file> <catalog file>");
+			return;
+		}
+		int converted = convert(args[0], Paths.get(args[1]));
+		System.out.println("Wrote " + converted + " puzzles to " + args[1]);
+	}
+
+	/**
+	 * Reads the bytes of the given puzzle.
+	 */
+	private ByteBuffer read(int n) throws IOException
+	{
+		if (n < 0 || n >= count)
+		{
+			throw new IndexOutOfBoundsException("Puzzle " + n + " of " + count);
+		}
+		long start = offsets.get(n);
+		long end = n + 1 < count ? offsets.get(n + 1) : indexOffset;
+		ByteBuffer record = ByteBuffer.allocate((int) (end - start));
+		while (record.hasRemaining())
+		{
+			if (channel.read(record, start + record.position()) < 0)
+			{
+				throw new IOException("Puzzle " + n + " is cut short");
+			}
+		}
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * Returns true if the given bit of a mask is set.
+	 */
+	private static boolean isSet(byte[] mask, int bit)
+	{
+		return (mask[bit >>> 3] & (1 << (bit & 7))) != 0;
+	}
+
+	/**
+	 * Writes puzzles to a new catalog file one at a time, holding only the offset
+	 * of each puzzle in memory. The index is written on close().
+	 */
+	public static class Writer implements Closeable
+	{
+		/**
+		 * Channel of the file being written.
+		 */
+		private FileChannel channel;
+
+		/**
+		 * Bytes not yet written to the channel.
+		 */
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		/**
+		 * Offset in the file of the next byte written.
+		 */
+		private long position;
+
+		/**
+		 * Offset of each puzzle written.
+		 */
+		private long[] offsets = new long[1024];
+
+		/**
+		 * Number of puzzles written.
+		 */
+		private int count;
+
+		/**
+		 * Creates the given catalog file, replacing it if it exists.
+		 *
+		 * @param file the catalog to write
+		 * @throws IOException if the file cannot be created
+		 */
+		public Writer(Path file) throws IOException
+		{
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			buffer.putInt(MAGIC);
+			position = 4;
+		}
+
+		/**
+		 * Adds a puzzle given in the text form read by DescriptionUtil. I/O errors
+		 * are thrown as UncheckedIOException so puzzles can be added from a stream.
+		 *
+		 * @param desc a 2D array of strings describing the puzzle
+		 * @throws IllegalArgumentException if the grid has more than 255 rows or
+		 *                                  columns, or a block is longer than 127
+		 */
+		public void add(String[][] desc)
+		{
+			int rows = desc.length;
+			int cols = desc[0].length;
+			if (rows > 255 || cols > 255)
+			{
+				throw new IllegalArgumentException("Grid of " + rows + " x " + cols + " is too large for a catalog");
+			}
+
+			byte[] walls = new byte[(rows * cols + 7) / 8];
+			byte[] exits = new byte[walls.length];
+			for (int i = 0; i < rows; i++)
+			{
+				for (int j = 0; j < cols; j++)
+				{
+					int cell = i * cols + j;
+					if (desc[i][j].equals("*"))
+					{
+						walls[cell >>> 3] |= 1 << (cell & 7);
+					}
+					else if (desc[i][j].equals("e"))
+					{
+						exits[cell >>> 3] |= 1 << (cell & 7);
+					}
+				}
+			}
+			ArrayList<Block> blocks = GridUtil.findBlocks(desc);
+			for (Block block : blocks)
+			{
+				if (block.getLength() > 127)
+				{
+					throw new IllegalArgumentException("Block of length " + block.getLength() + " is too long");
+				}
+			}
+
+			try
+			{
+				if (count == offsets.length)
+				{
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				offsets[count++] = position;
+				ensure(4 + 2 * walls.length + 3 * blocks.size());
+				buffer.put((byte) rows).put((byte) cols).put(walls).put(exits);
+				buffer.putShort((short) blocks.size());
+				for (Block block : blocks)
+				{
+					int shape = block.getLength() | (block.getOrientation() == VERTICAL ? 0x80 : 0);
+					buffer.put((byte) block.getFirstRow()).put((byte) block.getFirstCol()).put((byte) shape);
+				}
+				position += 4 + 2 * walls.length + 3 * blocks.size();
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Returns the number of puzzles added so far.
+		 *
+		 * @return number of puzzles
+		 */
+		public int size()
+		{
+			return count;
+		}
+
+		/**
+		 * Writes the index and trailer and closes the file.
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			long indexOffset = position;
+			for (int i = 0; i < count; i++)
+			{
+				ensure(8);
+				buffer.putLong(offsets[i]);
+			}
+			ensure(TRAILER_BYTES);
+			buffer.putLong(indexOffset).putInt(count).putInt(MAGIC);
+			drain();
+			channel.close();
+		}
+
+		/**
+		 * Makes room for the given number of bytes in the buffer, growing it for a
+		 * puzzle larger than the buffer.
+		 */
+		private void ensure(int bytes) throws IOException
+		{
+			if (buffer.remaining() < bytes)
+			{
+				drain();
+				if (buffer.capacity() < bytes)
+				{
+					buffer = ByteBuffer.allocate(bytes);
+				}
+			}
+		}
+
+		/**
+		 * Writes everything buffered to the channel.
+		 */
+		private void drain() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package hw3;
+
+import api.Move;
+
+/**
+ * The exact number of moves to the goal from every position reachable from a
+ * start position. The table is built once: a breadth-first search from the
+ * start enumerates the reachable positions into a StateStore, by their
+ * canonical keys (see Symmetry), and a second breadth-first search running
+ * backward from all positions that are game over stores each position's
+ * distance to the goal as its value. Since every move can be undone, the
+ * positions one move before a position are the ones one move after it.
+ * <p>
+ * After that, the best move from any of these positions is found by trying its
+ * moves and picking one that lowers the stored distance, with no search.
+ */
+public class RetrogradeTable
+{
+	/**
+	 * Value of positions from which the goal cannot be reached.
+	 */
+	public static final int UNREACHABLE = -1;
+
+	/**
+	 * Layout of the board.
+	 */
+	private Layout layout;
+
+	/**
+	 * Reachable positions, each with its distance to the goal as its value.
+	 */
+	private StateStore table;
+
+	/**
+	 * Canonical form of positions, so equivalent positions are stored once.
+	 */
+	private Symmetry symmetry;
+
+	/**
+	 * Scratch cells covered by blocks.
+	 */
+	private boolean[] occupied;
+
+	/**
+	 * Scratch moves of a position.
+	 */
+	private int[] moves;
+
+	/**
+	 * Scratch key of a position.
+	 */
+	private long[] key;
+
+	/**
+	 * Builds the table of positions reachable from the given start, keeping them
+	 * in a StateTable on the heap.
+	 *
+	 * @param layout layout of the board
+	 * @param start  the variable coordinate of each block at the start
+	 */
+	public RetrogradeTable(Layout layout, int[] start)
+	{
+		this(layout, start, new StateTable(layout.getWords()), new Symmetry(layout));
+	}
+
+	/**
+	 * Builds the table of positions reachable from the given start, keeping them
+	 * in the given store.
+	 *
+	 * @param layout   layout of the board
+	 * @param start    the variable coordinate of each block at the start
+	 * @param table    an empty store for keys of the layout
+	 * @param symmetry canonical form of positions of the layout
+	 */
+	public RetrogradeTable(Layout layout, int[] start, StateStore table, Symmetry symmetry)
+	{
+		this.layout = layout;
+		this.table = table;
+		this.symmetry = symmetry;
+		occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		moves = new int[layout.getMaxMoves()];
+		key = new long[layout.getWords()];
+
+		enumerate(start);
+		retrograde();
+	}
+
+	/**
+	 * Returns the number of positions in the table.
+	 *
+	 * @return number of reachable positions, counting equivalent ones once
+	 */
+	public int size()
+	{
+		return table.size();
+	}
+
+	/**
+	 * Returns the number of moves from the given position to the goal.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @return the distance to the goal, or UNREACHABLE if the goal cannot be
+	 *         reached or the position is not in the table
+	 */
+	public int distance(int[] positions)
+	{
+		symmetry.canonical(positions, key, 0);
+		int id = table.find(key, 0);
+		return id < 0 ? UNREACHABLE : (int) table.getValue(id);
+	}
+
+	/**
+	 * Returns a first move of a shortest solution from the given position.
+	 *
+	 * @param positions the variable coordinate of each block, not changed
+	 * @return the encoded move (see Layout), or -1 if the position is game over,
+	 *         cannot reach the goal or is not in the table
+	 */
+	public int bestMove(int[] positions)
+	{
+		int distance = distance(positions);
+		if (distance <= 0)
+		{
+			return -1;
+		}
+
+		int[] scratch = positions.clone();
+		layout.fillOccupied(scratch, occupied);
+		int count = layout.generateMoves(scratch, occupied, moves);
+		for (int i = 0; i < count; i++)
+		{
+			layout.apply(scratch, null, moves[i]);
+			int next = distance(scratch);
+			layout.apply(scratch, null, Layout.opposite(moves[i]));
+			if (next == distance - 1)
+			{
+				return moves[i];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a first move of a shortest solution from the current position of
+	 * the given board, which must have the layout of this table.
+	 *
+	 * @param board the board to give a hint for
+	 * @return the move, or null if the board is game over, cannot be solved or is
+	 *         in a position not reachable from the start of this table
+	 */
+	public Move getHint(Board board)
+	{
+		int[] positions = new int[layout.getBlockCount()];
+		layout.readPositions(board, positions);
+		int move = bestMove(positions);
+		if (move < 0)
+		{
+			return null;
+		}
+		return new Move(board.getBlocks().get(Layout.moveBlock(move)), Layout.moveDirection(move));
+	}
+
+	/**
+	 * Follows best moves from the given position to the goal.
+	 *
+	 * @param positions the variable coordinate of each block, not changed
+	 * @return a shortest solution, with no search statistics
+	 */
+	public SolverResult solve(int[] positions)
+	{
+		int distance = distance(positions);
+		if (distance == UNREACHABLE)
+		{
+			return new SolverResult(null, 0, 0, 0);
+		}
+
+		int[] current = positions.clone();
+		int[] solution = new int[distance];
+		for (int i = 0; i < distance; i++)
+		{
+			solution[i] = bestMove(current);
+			layout.apply(current, null, solution[i]);
+		}
+		return new SolverResult(solution, 0, 0, distance);
+	}
+
+	/**
+	 * Adds every position reachable from the start to the table, without moving
+	 * on from positions that are game over. The value of each position is left
+	 * at UNREACHABLE.
+	 */
+	private void enumerate(int[] start)
+	{
+		int[] positions = start.clone();
+		symmetry.canonical(positions, key, 0);
+		table.add(key, 0);
+		table.setValue(0, UNREACHABLE);
+
+		for (int id = 0; id < table.size(); id++)
+		{
+			table.getKey(id, key, 0);
+			layout.unpack(key, 0, positions);
+			if (layout.isGoal(positions))
+			{
+				continue;
+			}
+
+			layout.fillOccupied(positions, occupied);
+			int count = layout.generateMoves(positions, occupied, moves);
+			for (int i = 0; i < count; i++)
+			{
+				layout.apply(positions, null, moves[i]);
+				symmetry.canonical(positions, key, 0);
+				int child = table.add(key, 0);
+				if (child >= 0)
+				{
+					table.setValue(child, UNREACHABLE);
+				}
+				layout.apply(positions, null, Layout.opposite(moves[i]));
+			}
+		}
+	}
+
+	/**
+	 * Stores the distance to the goal of every position by breadth-first search
+	 * backward from all the goal positions at once.
+	 */
+	private void retrograde()
+	{
+		int[] positions = new int[layout.getBlockCount()];
+		int[] queue = new int[table.size()];
+		int head = 0;
+		int tail = 0;
+		for (int id = 0; id < table.size(); id++)
+		{
+			table.getKey(id, key, 0);
+			layout.unpack(key, 0, positions);
+			if (layout.isGoal(positions))
+			{
+				table.setValue(id, 0);
+				queue[tail++] = id;
+			}
+		}
+
+		while (head < tail)
+		{
+			int id = queue[head++];
+			long distance = table.getValue(id);
+			table.getKey(id, key, 0);
+			layout.unpack(key, 0, positions);
+			layout.fillOccupied(positions, occupied);
+			int count = layout.generateMoves(positions, occupied, moves);
+			for (int i = 0; i < count; i++)
+			{
+				layout.apply(positions, null, moves[i]);
+				symmetry.canonical(positions, key, 0);
+				int parent = table.find(key, 0);
+				if (parent >= 0 && table.getValue(parent) == UNREACHABLE)
+				{
+					table.setValue(parent, distance + 1);
+					queue[tail++] = parent;
+				}
+				layout.apply(positions, null, Layout.opposite(moves[i]));
+			}
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package hw3;
+
+/**
+ * Lets a search be stopped from outside and watched while it runs. A control
+ * has an optional deadline and can be cancelled from any thread; searches
+ * given the control poll it as they expand positions, stop soon after either
+ * happens and return the best result they have, marked as not complete. An
+ * optional ProgressListener is told how far the search has got at a fixed
+ * interval.
+ */
+public class SearchControl
+{
+	/**
+	 * The clock is read once for this many polls, one less than a power of two.
+	 */
+	private static final int CLOCK_MASK = 255;
+
+	/**
+	 * Time after which searches stop, in System.nanoTime() units, or
+	 * Long.MAX_VALUE for none.
+	 */
+	private long deadline;
+
+	/**
+	 * True once cancel() has been called.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * True once the deadline has passed.
+	 */
+	private volatile boolean expired;
+
+	/**
+	 * Receiver of progress reports, or null.
+	 */
+	private ProgressListener listener;
+
+	/**
+	 * Time between progress reports, in nanoseconds.
+	 */
+	private long interval;
+
+	/**
+	 * Time of the next progress report.
+	 */
+	private long nextReport;
+
+	/**
+	 * Time the current search started.
+	 */
+	private long started;
+
+	/**
+	 * Number of polls since the current search started.
+	 */
+	private long polls;
+
+	/**
+	 * Deepest level or bound reached by the current search.
+	 */
+	private int reached;
+
+	/**
+	 * Shortest solution found so far, or null.
+	 */
+	private volatile SolverResult best;
+
+	/**
+	 * Constructs a control with no deadline.
+	 */
+	public SearchControl()
+	{
+		deadline = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Constructs a control whose deadline is the given time from now.
+	 *
+	 * @param timeoutMillis time searches may run for, in milliseconds
+	 */
+	public SearchControl(long timeoutMillis)
+	{
+		deadline = System.nanoTime() + timeoutMillis * 1000000L;
+	}
+
+	/**
+	 * Sets the receiver of progress reports.
+	 *
+	 * @param listener       receiver of reports, or null for none
+	 * @param intervalMillis time between reports, in milliseconds
+	 */
+	public void setProgressListener(ProgressListener listener, long intervalMillis)
+	{
+		this.listener = listener;
+		interval = intervalMillis * 1000000L;
+	}
+
+	/**
+	 * Asks searches using this control to stop. May be called from any thread.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Returns true if cancel() has been called.
+	 *
+	 * @return true if cancelled
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * Returns true if searches using this control must stop, because it was
+	 * cancelled or its deadline has passed.
+	 *
+	 * @return true if stopped
+	 */
+	public boolean isStopped()
+	{
+		return cancelled || expired || System.nanoTime() >= deadline;
+	}
+
+	/**
+	 * Returns the shortest solution reported by a search using this control. May
+	 * be called from any thread.
+	 *
+	 * @return the best solution so far, or null if none
+	 */
+	public SolverResult getBest()
+	{
+		return best;
+	}
+
+	/**
+	 * Called by a search as it starts.
+	 */
+	void begin()
+	{
+		started = System.nanoTime();
+		nextReport = started + interval;
+		polls = 0;
+		reached = 0;
+		best = null;
+	}
+
+	/**
+	 * Called by a search for each position it expands. Reads the clock every so
+	 * often, reporting progress when it is due, and returns true if the search
+	 * must stop.
+	 */
+	boolean poll(int depth, long expanded)
+	{
+		reached = Math.max(reached, depth);
+		if (cancelled || expired)
+		{
+			return true;
+		}
+		if ((++polls & CLOCK_MASK) != 0)
+		{
+			return false;
+		}
+
+		long now = System.nanoTime();
+		if (now >= deadline)
+		{
+			expired = true;
+		}
+		if (listener != null && now >= nextReport)
+		{
+			double seconds = (now - started) / 1e9;
+			listener.progress(reached, expanded, seconds > 0 ? expanded / seconds : 0, best);
+			nextReport = now + interval;
+		}
+		return expired;
+	}
+
+	/**
+	 * Called by a search when it finds a solution, which becomes the best so far
+	 * if it is shorter than any before.
+	 */
+	void improve(SolverResult solution)
+	{
+		SolverResult current = best;
+		if (current == null || solution.getLength() < current.getLength())
+		{
+			best = solution;
+		}
+	}
+}
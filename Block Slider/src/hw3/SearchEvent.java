@@ -0,0 +1,72 @@
+package hw3;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one search of a solver engine, committed by
+ * SearchStatistics when the search returns.
+ */
+@Name("hw3.Search")
+@Label("Solver Search")
+@Category({ "Block Slider", "Solver" })
+@Description("One search for a solution to a board")
+class SearchEvent extends Event
+{
+	/**
+	 * Name of the search strategy.
+	 */
+	@Label("Strategy")
+	String strategy;
+
+	/**
+	 * True if a solution was found.
+	 */
+	@Label("Solved")
+	boolean solved;
+
+	/**
+	 * False if the search was stopped before its end.
+	 */
+	@Label("Complete")
+	boolean complete;
+
+	/**
+	 * Number of moves in the solution, or -1.
+	 */
+	@Label("Solution Length")
+	int length;
+
+	/**
+	 * Number of positions reached by a move.
+	 */
+	@Label("Generated")
+	long generated;
+
+	/**
+	 * Number of positions whose moves were generated.
+	 */
+	@Label("Expanded")
+	long expanded;
+
+	/**
+	 * Number of generated positions that had been visited already.
+	 */
+	@Label("Duplicates")
+	long duplicates;
+
+	/**
+	 * Largest number of positions waiting to be expanded at one time.
+	 */
+	@Label("Max Frontier")
+	long maxFrontier;
+
+	/**
+	 * Average number of moves from an expanded position.
+	 */
+	@Label("Branching Factor")
+	double branchingFactor;
+}
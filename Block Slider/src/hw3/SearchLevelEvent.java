@@ -0,0 +1,51 @@
+package hw3;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one completed level of a search, a depth of a
+ * level by level search or an iteration of iterative deepening, committed by
+ * SearchStatistics.
+ */
+@Name("hw3.SearchLevel")
+@Label("Solver Search Level")
+@Category({ "Block Slider", "Solver" })
+@Description("One completed depth or iteration of a search")
+class SearchLevelEvent extends Event
+{
+	/**
+	 * Name of the search strategy.
+	 */
+	@Label("Strategy")
+	String strategy;
+
+	/**
+	 * Index of the level.
+	 */
+	@Label("Depth")
+	int depth;
+
+	/**
+	 * Number of positions expanded in the level.
+	 */
+	@Label("Expanded")
+	long expanded;
+
+	/**
+	 * Number of positions generated in the level.
+	 */
+	@Label("Generated")
+	long generated;
+
+	/**
+	 * Time spent on the level.
+	 */
+	@Label("Level Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long nanos;
+}
@@ -0,0 +1,281 @@
+package hw3;
+
+import java.util.Arrays;
+
+/**
+ * Counters kept by a search engine while it runs: positions generated and
+ * expanded, generated positions that were already visited, the largest
+ * frontier and the time spent on each level. Level by level searches end a
+ * level per depth, iterative deepening ends one per bound, and depth-first
+ * searches have none.
+ * <p>
+ * Recording is a handful of field updates per position. Each search and each
+ * level is also committed as a JDK Flight Recorder event, which costs nothing
+ * unless a recording with the events enabled is running. A search only
+ * updates its own statistics, so read them through snapshot() from other
+ * threads.
+ */
+public class SearchStatistics
+{
+	/**
+	 * Name of the search strategy.
+	 */
+	private String strategy;
+
+	/**
+	 * Number of positions reached by a move.
+	 */
+	private long generated;
+
+	/**
+	 * Number of positions whose moves were generated.
+	 */
+	private long expanded;
+
+	/**
+	 * Number of generated positions that had been visited already.
+	 */
+	private long duplicates;
+
+	/**
+	 * Largest number of positions waiting to be expanded at one time.
+	 */
+	private long maxFrontier;
+
+	/**
+	 * Time spent on each completed level, in nanoseconds.
+	 */
+	private long[] levelNanos = new long[0];
+
+	/**
+	 * Time the search started, in System.nanoTime() units.
+	 */
+	private long started;
+
+	/**
+	 * Time the last level ended or the search started.
+	 */
+	private long levelStarted;
+
+	/**
+	 * Time the search took, or 0 while it runs.
+	 */
+	private long elapsedNanos;
+
+	/**
+	 * Positions generated before the current level.
+	 */
+	private long levelGenerated;
+
+	/**
+	 * Positions expanded before the current level.
+	 */
+	private long levelExpanded;
+
+	/**
+	 * Flight recorder event spanning the search.
+	 */
+	private SearchEvent event;
+
+	/**
+	 * Constructs empty statistics for a search of the given strategy.
+	 *
+	 * @param strategy name of the search strategy
+	 */
+	public SearchStatistics(String strategy)
+	{
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Returns the name of the search strategy.
+	 *
+	 * @return strategy name
+	 */
+	public String getStrategy()
+	{
+		return strategy;
+	}
+
+	/**
+	 * Returns the number of positions reached by a move, counting repeats.
+	 *
+	 * @return positions generated
+	 */
+	public long getGenerated()
+	{
+		return generated;
+	}
+
+	/**
+	 * Returns the number of positions whose moves were generated.
+	 *
+	 * @return positions expanded
+	 */
+	public long getExpanded()
+	{
+		return expanded;
+	}
+
+	/**
+	 * Returns the number of generated positions that had been visited already.
+	 *
+	 * @return duplicate hits in the visited positions
+	 */
+	public long getDuplicates()
+	{
+		return duplicates;
+	}
+
+	/**
+	 * Returns the largest number of positions waiting to be expanded at one time.
+	 *
+	 * @return peak frontier size
+	 */
+	public long getMaxFrontier()
+	{
+		return maxFrontier;
+	}
+
+	/**
+	 * Returns the average number of moves from an expanded position.
+	 *
+	 * @return average branching factor, or 0 if nothing was expanded
+	 */
+	public double getBranchingFactor()
+	{
+		return expanded == 0 ? 0 : (double) generated / expanded;
+	}
+
+	/**
+	 * Returns the time spent on each completed level in the order they were
+	 * completed, starting with the first depth below the start for level by level
+	 * searches and with the first bound for iterative deepening.
+	 *
+	 * @return nanoseconds per level
+	 */
+	public long[] getLevelNanos()
+	{
+		return levelNanos.clone();
+	}
+
+	/**
+	 * Returns the time the search took, or the time so far if it is running.
+	 *
+	 * @return elapsed nanoseconds
+	 */
+	public long getElapsedNanos()
+	{
+		return elapsedNanos != 0 || started == 0 ? elapsedNanos : System.nanoTime() - started;
+	}
+
+	/**
+	 * Returns a copy of these statistics that does not change as the search goes
+	 * on.
+	 *
+	 * @return a snapshot of the counters
+	 */
+	public SearchStatistics snapshot()
+	{
+		SearchStatistics copy = new SearchStatistics(strategy);
+		copy.generated = generated;
+		copy.expanded = expanded;
+		copy.duplicates = duplicates;
+		copy.maxFrontier = maxFrontier;
+		copy.levelNanos = levelNanos.clone();
+		copy.elapsedNanos = getElapsedNanos();
+		return copy;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%s: expanded=%d, generated=%d, duplicates=%d, frontier=%d, branching=%.2f, time=%.1fms",
+				strategy, expanded, generated, duplicates, maxFrontier, getBranchingFactor(), getElapsedNanos() / 1e6);
+	}
+
+	/**
+	 * Called by a search as it starts.
+	 */
+	void start()
+	{
+		started = System.nanoTime();
+		levelStarted = started;
+		event = new SearchEvent();
+		event.begin();
+	}
+
+	/**
+	 * Called by a search for each position it expands, with the number of
+	 * positions its moves reach.
+	 */
+	void expanded(int children)
+	{
+		expanded++;
+		generated += children;
+	}
+
+	/**
+	 * Called by a search with a number of generated positions it had visited
+	 * already.
+	 */
+	void duplicates(long count)
+	{
+		duplicates += count;
+	}
+
+	/**
+	 * Called by a search with the number of positions waiting to be expanded.
+	 */
+	void frontier(long size)
+	{
+		maxFrontier = Math.max(maxFrontier, size);
+	}
+
+	/**
+	 * Called by a search as it completes a level.
+	 */
+	void endLevel()
+	{
+		long now = System.nanoTime();
+		int depth = levelNanos.length;
+		levelNanos = Arrays.copyOf(levelNanos, depth + 1);
+		levelNanos[depth] = now - levelStarted;
+
+		SearchLevelEvent level = new SearchLevelEvent();
+		if (level.shouldCommit())
+		{
+			level.strategy = strategy;
+			level.depth = depth;
+			level.expanded = expanded - levelExpanded;
+			level.generated = generated - levelGenerated;
+			level.nanos = now - levelStarted;
+			level.commit();
+		}
+		levelStarted = now;
+		levelExpanded = expanded;
+		levelGenerated = generated;
+	}
+
+	/**
+	 * Called by a search as it returns the given result.
+	 */
+	void finish(SolverResult result)
+	{
+		elapsedNanos = System.nanoTime() - started;
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.strategy = strategy;
+			event.solved = result.isSolved();
+			event.complete = result.isComplete();
+			event.length = result.getLength();
+			event.generated = generated;
+			event.expanded = expanded;
+			event.duplicates = duplicates;
+			event.maxFrontier = maxFrontier;
+			event.branchingFactor = getBranchingFactor();
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package hw3;
+
+/**
+ * Receives solutions from Solver.solve(Board, SolutionListener) one at a time,
+ * as soon as each is found.
+ */
+public interface SolutionListener
+{
+	/**
+	 * Called for each solution found. The result holds a copy of the moves of the
+	 * solution and the number of positions expanded so far, and is not changed
+	 * by the solver afterwards.
+	 *
+	 * @param solution the solution just found
+	 * @return true to keep searching, false to stop the search
+	 */
+	boolean solutionFound(SolverResult solution);
+}
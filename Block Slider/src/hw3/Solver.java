@@ -1,32 +1,139 @@
 package hw3;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
-import hw3.Board;
-import hw3.Block;
-import hw3.GridUtil;
 
 import api.Move;
 
 /**
  * A puzzle solver for the the Block Slider game.
  * <p>
- * THE ONLY METHOD YOU ARE CHANGING IN THIS CLASS IS solve().
+ * solve() finds solutions within the maximum number of moves by depth-first
+ * search, either collecting them or streaming them to a listener. It skips any
+ * position already reached in as few moves, so move sequences that only differ
+ * in order up to a shared position are reported once rather than each.
+ * solveShortest() finds one shortest solution by breadth-first search and
+ * solveIdaStar() finds one with memory proportional to its length. analyze()
+ * computes the distance to the goal of every reachable position, so the best
+ * move from any of them can be looked up. solveAnytime() finds some solution
+ * quickly and improves it until it is shortest or a SearchControl stops it.
  */
 public class Solver
 {
+	/**
+	 * Number of positions sorted in memory at one time by solveExternal().
+	 */
+	private static final int EXTERNAL_RUN_STATES = 1 << 20;
+
 	/**
 	 * Maximum number of moves allowed in the search.
 	 */
 	private int maxMoves;
 
 	/**
-	 * Associates a string representation of a grid with the move count required to
-	 * reach that grid layout.
+	 * Associates a packed grid position with the move count required to reach
+	 * that position. Created again by each call to solve().
+	 */
+	private StateStore seen;
+
+	/**
+	 * The off-heap table reused by every search of this solver that keeps its
+	 * positions off the heap, or null until the first one. Only one search uses it
+	 * at a time, so it is cleared rather than allocated again.
+	 */
+	private OffHeapStateTable offHeap;
+
+	/**
+	 * Largest number of bytes of off-heap memory for visited positions, or zero to
+	 * keep them on the heap.
+	 */
+	private long stateBudget;
+
+	/**
+	 * File to map the off-heap visited positions from, or null to allocate them
+	 * directly.
+	 */
+	private File stateFile;
+
+	/**
+	 * True if breadth-first searches store positions that are the same up to
+	 * symmetry only once.
+	 */
+	private boolean symmetryReduction = true;
+
+	/**
+	 * Directory to keep pattern databases in, or null to guide solveIdaStar()
+	 * with the blocking heuristic alone.
+	 */
+	private File patternDirectory;
+
+	/**
+	 * Control polled by every search of this solver, or null to run them to the
+	 * end.
+	 */
+	private SearchControl control;
+
+	/**
+	 * Counters of the last search, or null before the first.
+	 */
+	private SearchStatistics statistics;
+
+	/**
+	 * Layout of the board being solved, used to pack positions into keys.
+	 */
+	private Layout layout;
+
+	/**
+	 * Scratch array holding the block coordinates of the current position.
+	 */
+	private int[] positions;
+
+	/**
+	 * Cells covered by blocks in the current position.
+	 */
+	private boolean[] occupied;
+
+	/**
+	 * The board whose blocks are referenced by the moves of each solution.
+	 */
+	private Board solvedBoard;
+
+	/**
+	 * Scratch array holding the packed key of the current position.
+	 */
+	private long[] key;
+
+	/**
+	 * Moves made from the start to reach the current position.
+	 */
+	private int[] path;
+
+	/**
+	 * Generated moves for each depth of the current path.
+	 */
+	private int[][] moveBuffers;
+
+	/**
+	 * Receives the solutions of the current search.
+	 */
+	private SolutionListener listener;
+
+	/**
+	 * Set when the listener asks the search to stop.
+	 */
+	private boolean stopped;
+
+	/**
+	 * Number of positions expanded by the current search.
+	 */
+	private long expanded;
+
+	/**
+	 * Shortest solution found by the current depth-first search, or null.
 	 */
-	private Map<String, Integer> seen = new HashMap<String, Integer>();
+	private int[] shortest;
 
 	/**
 	 * All solutions found in this search.
@@ -54,6 +161,91 @@ public class Solver
 		return solutions;
 	}
 
+	/**
+	 * Keeps the positions visited by later searches outside the Java heap, in at
+	 * most the given number of bytes. A search that needs more positions than fit
+	 * fails with an IllegalStateException. A budget of zero keeps them on the heap
+	 * again. The memory is allocated once and reused by each later search, except
+	 * that every table returned by analyze() has memory of its own.
+	 * 
+	 * @param budgetBytes largest number of bytes for visited positions
+	 */
+	public void setStateBudget(long budgetBytes)
+	{
+		stateBudget = budgetBytes;
+		offHeap = null;
+	}
+
+	/**
+	 * Maps the off-heap visited positions from the given file instead of
+	 * allocating them, so the operating system can page them out to disk. Only
+	 * used when a state budget is set. Pass null to allocate them again.
+	 * <p>
+	 * The file belongs to this solver: it is overwritten when the next search
+	 * maps it, and then shared by every later search, so it must not be given to
+	 * another solver. A table returned by analyze() outlives the searches after
+	 * it, so it maps a temporary file of its own from the same directory instead,
+	 * which is deleted as soon as it is mapped wherever the system allows it.
+	 * 
+	 * @param file file to map, overwritten by the next search
+	 */
+	public void setStateFile(File file)
+	{
+		stateFile = file;
+		offHeap = null;
+	}
+
+	/**
+	 * Sets whether solveShortest() and solveExternal() treat interchangeable blocks
+	 * and mirror images of a position as the same position. This is on by default
+	 * and never changes the length of the solution found.
+	 * 
+	 * @param enabled true to reduce by symmetry
+	 */
+	public void setSymmetryReduction(boolean enabled)
+	{
+		symmetryReduction = enabled;
+	}
+
+	/**
+	 * Guides solveIdaStar() with a pattern database kept in the given directory.
+	 * The database for a board is built on first use and loaded from the
+	 * directory afterwards, by this or any later solver. Pass null to use the
+	 * blocking heuristic alone again.
+	 * 
+	 * @param directory directory of pattern database files
+	 */
+	public void setPatternDatabaseDirectory(File directory)
+	{
+		patternDirectory = directory;
+	}
+
+	/**
+	 * Sets the control polled by every search of this solver, which can stop a
+	 * search from another thread or at a deadline and is told of its progress. A
+	 * stopped search returns what it has, marked as not complete, and solve()
+	 * stops streaming solutions. Pass null to run searches to the end again.
+	 * 
+	 * @param control the control, or null
+	 */
+	public void setSearchControl(SearchControl control)
+	{
+		this.control = control;
+	}
+
+	/**
+	 * Returns a snapshot of the counters of the last search of this solver: nodes
+	 * generated and expanded, duplicate hits in the visited positions, the
+	 * largest frontier, the branching factor and the time per level. Each search
+	 * is also recorded as a JDK Flight Recorder event.
+	 * 
+	 * @return statistics of the last search, or null before the first search
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics == null ? null : statistics.snapshot();
+	}
+
 	/**
 	 * Prints all solutions found in the search.
 	 */
@@ -77,30 +269,381 @@ public class Solver
 	 * algorithm described in the assignment pdf. This method does not return
 	 * anything its purpose is to update the instance variable solutions with every
 	 * solution found.
+	 * <p>
+	 * The search runs on packed copies of the block positions, so the given board
+	 * itself is not modified. Moves of each solution are relative to the position
+	 * of the board when this method is called. As in the assignment, a position
+	 * reached again with as many moves or more is not searched again, so
+	 * solutions that differ only by the order of moves reaching a shared position
+	 * are found once. Positions seen in earlier calls are forgotten.
 	 * 
 	 * @param board any instance of Board
 	 */
 	public void solve(Board board)
+	{
+		solve(board, new SolutionListener()
+		{
+			public boolean solutionFound(SolverResult solution)
+			{
+				solutions.add(solution.toMoves(board));
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Runs the same search as solve(Board) but hands each solution to the given
+	 * listener as soon as it is found instead of collecting them, so memory does
+	 * not grow with the number of solutions. The search ends early if the
+	 * listener returns false. The board is not modified.
+	 * 
+	 * @param board    any instance of Board
+	 * @param listener receives each solution
+	 */
+	public void solve(Board board, SolutionListener listener)
+	{
+		prepare(board);
+		seen = createStore(layout);
+		layout.readPositions(board, positions);
+		layout.fillOccupied(positions, occupied);
+		this.listener = listener;
+		stopped = false;
+		expanded = 0;
+		shortest = null;
+		statistics = new SearchStatistics("depth-first");
+		statistics.start();
+		if (control != null)
+		{
+			control.begin();
+		}
+		search(0);
+		int length = shortest == null ? maxMoves : shortest.length;
+		statistics.finish(new SolverResult(shortest, expanded, length, length, !stopped));
+		this.listener = null;
+	}
+
+	/**
+	 * Searches level by level for a shortest solution to the given board, using
+	 * at most the maximum number of moves of this solver. Unlike solve(), the cost
+	 * of the search grows with the number of distinct positions within reach
+	 * rather than with the number of move sequences. The board is not modified.
+	 * 
+	 * @param board any instance of Board
+	 * @return the shortest solution found along with search statistics
+	 */
+	public SolverResult solveShortest(Board board)
+	{
+		return solveShortest(new BoardState(board));
+	}
+
+	/**
+	 * Searches level by level for a shortest solution from the given state, like
+	 * solveShortest(Board). Since the state cannot change, any number of solvers
+	 * may search from states of the same board at once, each on its own thread.
+	 * 
+	 * @param state the position to solve
+	 * @return the shortest solution found along with search statistics
+	 */
+	public SolverResult solveShortest(BoardState state)
+	{
+		Layout boardLayout = state.getLayout();
+		BreadthFirstSearch search = new BreadthFirstSearch(boardLayout, maxMoves, createStore(boardLayout),
+				createSymmetry(boardLayout));
+		search.setControl(control);
+		SolverResult result = search.search(state.getPositions());
+		statistics = search.getStatistics();
+		return result;
+	}
+
+	/**
+	 * Searches level by level for the solution to the given board with the fewest
+	 * slides, where moving one block any number of cells in one direction counts
+	 * as a single move. The maximum number of moves of this solver limits the
+	 * number of slides. The board is not modified.
+	 * 
+	 * @param board any instance of Board
+	 * @return the solution with the fewest slides along with search statistics
+	 */
+	public SolverResult solveFewestSlides(Board board)
+	{
+		Layout boardLayout = new Layout(board);
+		int[] start = new int[boardLayout.getBlockCount()];
+		boardLayout.readPositions(board, start);
+		BreadthFirstSearch search = new BreadthFirstSearch(boardLayout, maxMoves, createStore(boardLayout),
+				createSymmetry(boardLayout));
+		search.setSlides(true);
+		search.setControl(control);
+		SolverResult result = search.search(start);
+		statistics = search.getStatistics();
+		return result;
+	}
+
+	/**
+	 * Searches for a shortest solution to the given board by iterative deepening
+	 * A*, using at most the maximum number of moves of this solver. It visits more
+	 * positions than solveShortest() but only keeps the current path in memory,
+	 * so it can solve puzzles whose positions would not fit in the heap. The board
+	 * is not modified.
+	 * 
+	 * @param board any instance of Board
+	 * @return the shortest solution found along with search statistics
+	 */
+	public SolverResult solveIdaStar(Board board)
+	{
+		return solveIdaStar(new BoardState(board));
+	}
+
+	/**
+	 * Searches for a shortest solution from the given state by iterative
+	 * deepening A*, like solveIdaStar(Board). Since the state cannot change, any
+	 * number of solvers may search from states of the same board at once, each on
+	 * its own thread.
+	 * 
+	 * @param state the position to solve
+	 * @return the shortest solution found along with search statistics
+	 */
+	public SolverResult solveIdaStar(BoardState state)
+	{
+		Layout boardLayout = state.getLayout();
+		IdaStarSearch search = new IdaStarSearch(boardLayout, maxMoves, createHeuristic(boardLayout));
+		search.setControl(control);
+		SolverResult result = search.search(state.getPositions());
+		statistics = search.getStatistics();
+		return result;
+	}
+
+	/**
+	 * Searches depth first for a solution to the given board, using at most the
+	 * maximum number of moves of this solver, and keeps looking for shorter ones
+	 * until it has a shortest one or the search control of this solver stops it.
+	 * Each shorter solution is passed to the control as it is found, and the
+	 * shortest found is returned. The board is not modified.
+	 * 
+	 * @param board any instance of Board
+	 * @return the shortest solution found along with search statistics
+	 */
+	public SolverResult solveAnytime(Board board)
+	{
+		Layout boardLayout = new Layout(board);
+		int[] start = new int[boardLayout.getBlockCount()];
+		boardLayout.readPositions(board, start);
+		AnytimeSearch search = new AnytimeSearch(boardLayout, maxMoves, createHeuristic(boardLayout),
+				createStore(boardLayout), createSymmetry(boardLayout));
+		search.setControl(control);
+		SolverResult result = search.search(start);
+		statistics = search.getStatistics();
+		return result;
+	}
+
+	/**
+	 * Computes the number of moves to the goal from every position reachable from
+	 * the current position of the given board, keeping them on the heap or off it
+	 * as set on this solver. The table keeps its positions in a store of its own,
+	 * so later searches of this solver leave it intact. The board is not
+	 * modified.
+	 * 
+	 * @param board any instance of Board
+	 * @return the table of distances to the goal
+	 */
+	public RetrogradeTable analyze(Board board)
+	{
+		Layout boardLayout = new Layout(board);
+		int[] start = new int[boardLayout.getBlockCount()];
+		boardLayout.readPositions(board, start);
+		return new RetrogradeTable(boardLayout, start, createOwnStore(boardLayout), createSymmetry(boardLayout));
+	}
+
+	/**
+	 * Searches level by level for a shortest solution to the given board like
+	 * solveShortest(), but keeps the levels in temporary files in the given
+	 * directory instead of in memory, so the search is limited by disk space
+	 * rather than heap. The board is not modified.
+	 * 
+	 * @param board     any instance of Board
+	 * @param directory directory for temporary files, or null for the system
+	 *                  temporary directory
+	 * @return the shortest solution found along with search statistics
+	 */
+	public SolverResult solveExternal(Board board, File directory)
+	{
+		if (directory == null)
+		{
+			directory = new File(System.getProperty("java.io.tmpdir"));
+		}
+		Layout boardLayout = new Layout(board);
+		int[] start = new int[boardLayout.getBlockCount()];
+		boardLayout.readPositions(board, start);
+		ExternalBreadthFirstSearch search = new ExternalBreadthFirstSearch(boardLayout, maxMoves, directory,
+				EXTERNAL_RUN_STATES, createSymmetry(boardLayout));
+		search.setControl(control);
+		SolverResult result = search.search(start);
+		statistics = search.getStatistics();
+		return result;
+	}
+
+	/**
+	 * Creates the layout and scratch arrays for the given board, unless they were
+	 * already created for it by an earlier search.
+	 */
+	private void prepare(Board board)
+	{
+		if (solvedBoard != board)
+		{
+			layout = new Layout(board);
+			solvedBoard = board;
+			positions = new int[layout.getBlockCount()];
+			occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+			key = new long[layout.getWords()];
+			path = new int[maxMoves + 1];
+			moveBuffers = new int[maxMoves + 1][layout.getMaxMoves()];
+		}
+	}
+
+	/**
+	 * Returns an empty store for visited positions of the given layout for one
+	 * search. Off the heap this is the table of this solver, cleared, unless its
+	 * keys have a different number of words, in which case it is replaced.
+	 */
+	private StateStore createStore(Layout boardLayout)
+	{
+		if (stateBudget <= 0)
+		{
+			return new StateTable(boardLayout.getWords());
+		}
+		if (offHeap == null || offHeap.getWords() != boardLayout.getWords())
+		{
+			// let the old table be collected before allocating the new one
+			offHeap = null;
+			offHeap = stateFile == null ? new OffHeapStateTable(boardLayout.getWords(), stateBudget)
+					: new OffHeapStateTable(boardLayout.getWords(), stateBudget, stateFile);
+		}
+		else
+		{
+			offHeap.clear();
+		}
+		return offHeap;
+	}
+
+	/**
+	 * Creates an empty store for visited positions of the given layout that is
+	 * not shared with any search, mapped from a temporary file next to the state
+	 * file if one was set.
+	 */
+	private StateStore createOwnStore(Layout boardLayout)
+	{
+		if (stateBudget <= 0)
+		{
+			return new StateTable(boardLayout.getWords());
+		}
+		if (stateFile == null)
+		{
+			return new OffHeapStateTable(boardLayout.getWords(), stateBudget);
+		}
+		try
+		{
+			File file = File.createTempFile("retrograde", ".states", stateFile.getAbsoluteFile().getParentFile());
+			OffHeapStateTable table = new OffHeapStateTable(boardLayout.getWords(), stateBudget, file);
+			// the mapping stays valid after the file is unlinked
+			if (!file.delete())
+			{
+				file.deleteOnExit();
+			}
+			return table;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Creates the canonical form of positions of the given layout, which is the
+	 * plain packed position if symmetry reduction is off.
+	 */
+	private Symmetry createSymmetry(Layout boardLayout)
+	{
+		return symmetryReduction ? new Symmetry(boardLayout) : new Symmetry(boardLayout, false);
+	}
+
+	/**
+	 * Creates the heuristic for searches of the given layout, a pattern database
+	 * if a directory for them was set.
+	 */
+	private Heuristic createHeuristic(Layout boardLayout)
+	{
+		if (patternDirectory == null)
+		{
+			return new BlockingHeuristic(boardLayout);
+		}
+		return new PatternDatabase(boardLayout, patternDirectory);
+	}
+
+	/**
+	 * One step of the recursive search from the current positions, reached after
+	 * the given number of moves stored at the start of path.
+	 */
+	private void search(int moveCount)
 	{
 		// base cases
-		if (board.getMoveCount() > maxMoves)
+		if (moveCount > maxMoves || stopped)
+		{
+			return;
+		}
+
+		else if (layout.isGoal(positions))
 		{
+			int[] moves = new int[moveCount];
+			System.arraycopy(path, 0, moves, 0, moveCount);
+			SolverResult solution = new SolverResult(moves, expanded, moveCount, moveCount);
+			if (shortest == null || moveCount < shortest.length)
+			{
+				shortest = moves;
+			}
+			if (control != null)
+			{
+				control.improve(solution);
+			}
+			stopped = !listener.solutionFound(solution);
 			return;
 		}
 
-		else if (board.isGameOver())
+		layout.pack(positions, key, 0);
+		int id = seen.find(key, 0);
+		if (id >= 0 && moveCount >= seen.getValue(id))
 		{
-			solutions.add(board.getMoveHistory());
+			statistics.duplicates(1);
+			//if number of moves is greater than or equal to how we got there before
 			return;
 		}
-		else if (seen.containsKey(board.toString())) 
+
+		if (id < 0)
+		{
+			id = seen.add(key, 0);
+		}
+		seen.setValue(id, moveCount);
+
+		if (moveCount == maxMoves)
 		{
-			//if number of moves is greater than or equal to how we got there before 
-			
-	        return;
+			return;
 		}
 
-		// recursive call
-		solve(board);
+		// recursive call for every legal move, undoing it afterwards
+		expanded++;
+		if (control != null && control.poll(moveCount, expanded))
+		{
+			stopped = true;
+			return;
+		}
+		int[] moves = moveBuffers[moveCount];
+		int count = layout.generateMoves(positions, occupied, moves);
+		statistics.expanded(count);
+		statistics.frontier(moveCount + 1);
+		for (int i = 0; i < count && !stopped; i++)
+		{
+			path[moveCount] = moves[i];
+			layout.apply(positions, occupied, moves[i]);
+			search(moveCount + 1);
+			layout.apply(positions, occupied, Layout.opposite(moves[i]));
+		}
 	}
 }
@@ -0,0 +1,189 @@
+package hw3;
+
+import java.util.ArrayList;
+
+import api.Move;
+
+/**
+ * The outcome of a single search by the Solver: the solution found, if any, as
+ * a sequence of encoded moves (see Layout), together with statistics about the
+ * search.
+ */
+public class SolverResult
+{
+	/**
+	 * Encoded moves of the solution, or null if no solution was found.
+	 */
+	private int[] moves;
+
+	/**
+	 * Number of positions whose moves were generated.
+	 */
+	private long nodesExpanded;
+
+	/**
+	 * Largest number of positions waiting to be expanded at one time.
+	 */
+	private long peakFrontier;
+
+	/**
+	 * Deepest level of the search that was completed or reached.
+	 */
+	private int depth;
+
+	/**
+	 * True if the search ran to the end rather than being stopped.
+	 */
+	private boolean complete;
+
+	/**
+	 * Constructs the result of a search that ran to the end.
+	 *
+	 * @param moves         encoded moves of the solution, or null if none
+	 * @param nodesExpanded number of positions expanded
+	 * @param peakFrontier  largest frontier size
+	 * @param depth         deepest level searched
+	 */
+	public SolverResult(int[] moves, long nodesExpanded, long peakFrontier, int depth)
+	{
+		this(moves, nodesExpanded, peakFrontier, depth, true);
+	}
+
+	/**
+	 * Constructs a search result.
+	 *
+	 * @param moves         encoded moves of the solution, or null if none
+	 * @param nodesExpanded number of positions expanded
+	 * @param peakFrontier  largest frontier size
+	 * @param depth         deepest level searched
+	 * @param complete      false if the search was stopped before its end
+	 */
+	public SolverResult(int[] moves, long nodesExpanded, long peakFrontier, int depth, boolean complete)
+	{
+		this.moves = moves;
+		this.nodesExpanded = nodesExpanded;
+		this.peakFrontier = peakFrontier;
+		this.depth = depth;
+		this.complete = complete;
+	}
+
+	/**
+	 * Returns true if a solution was found.
+	 *
+	 * @return true if solved
+	 */
+	public boolean isSolved()
+	{
+		return moves != null;
+	}
+
+	/**
+	 * Returns true if the search ran to the end. A search that was cancelled or
+	 * ran out of time may have missed a shorter solution, or any solution.
+	 *
+	 * @return false if the search was stopped
+	 */
+	public boolean isComplete()
+	{
+		return complete;
+	}
+
+	/**
+	 * Returns a copy of the encoded moves of the solution.
+	 *
+	 * @return encoded moves, or null if no solution was found
+	 */
+	public int[] getMoves()
+	{
+		return moves == null ? null : moves.clone();
+	}
+
+	/**
+	 * Returns the number of moves in the solution, where a slide of several cells
+	 * counts as one move.
+	 *
+	 * @return solution length, or -1 if no solution was found
+	 */
+	public int getLength()
+	{
+		return moves == null ? -1 : moves.length;
+	}
+
+	/**
+	 * Returns the number of cells moved by the solution, the same as its length
+	 * unless it is made of slides.
+	 *
+	 * @return number of cells moved, or -1 if no solution was found
+	 */
+	public int getCellCount()
+	{
+		if (moves == null)
+		{
+			return -1;
+		}
+		int cells = 0;
+		for (int move : moves)
+		{
+			cells += Layout.moveCells(move);
+		}
+		return cells;
+	}
+
+	/**
+	 * Returns the number of positions whose moves were generated.
+	 *
+	 * @return nodes expanded
+	 */
+	public long getNodesExpanded()
+	{
+		return nodesExpanded;
+	}
+
+	/**
+	 * Returns the largest number of positions waiting to be expanded at one time.
+	 *
+	 * @return peak frontier size
+	 */
+	public long getPeakFrontier()
+	{
+		return peakFrontier;
+	}
+
+	/**
+	 * Returns the deepest level of the search.
+	 *
+	 * @return search depth
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Converts the solution into moves of the blocks of the given board, which
+	 * must be the board that was solved.
+	 *
+	 * @param board the solved board
+	 * @return list of moves, empty if no solution was found
+	 */
+	public ArrayList<Move> toMoves(Board board)
+	{
+		ArrayList<Move> list = new ArrayList<Move>();
+		if (moves != null)
+		{
+			for (int move : moves)
+			{
+				list.add(new Move(board.getBlocks().get(Layout.moveBlock(move)), Layout.moveDirection(move),
+						Layout.moveCells(move)));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(length=" + getLength() + ", expanded=" + nodesExpanded + ", frontier=" + peakFrontier + ", depth=" + depth
+				+ (complete ? "" : ", stopped") + ")";
+	}
+}
@@ -0,0 +1,73 @@
+package hw3;
+
+/**
+ * A set of packed positions, each given an id in the order it was added and a
+ * long value the caller may use for whatever it needs (a move count, a parent
+ * id, ...). Implemented on the heap by StateTable and off the heap by
+ * OffHeapStateTable.
+ */
+public interface StateStore
+{
+	/**
+	 * Returns the number of positions in the store.
+	 *
+	 * @return number of positions
+	 */
+	int size();
+
+	/**
+	 * Returns the number of longs in one key.
+	 *
+	 * @return words per key
+	 */
+	int getWords();
+
+	/**
+	 * Returns the id of the given key, or -1 if it is not in the store.
+	 *
+	 * @param key    array holding the key
+	 * @param offset index of the first word of the key
+	 * @return id of the key or -1
+	 */
+	int find(long[] key, int offset);
+
+	/**
+	 * Adds the given key if it is not already in the store. The value of a new key
+	 * is zero.
+	 *
+	 * @param key    array holding the key
+	 * @param offset index of the first word of the key
+	 * @return the id of the new key, or -(id + 1) if the key was already present
+	 */
+	int add(long[] key, int offset);
+
+	/**
+	 * Copies the key with the given id into dest.
+	 *
+	 * @param id     id of the key
+	 * @param dest   array to copy to
+	 * @param offset index of the first word to write
+	 */
+	void getKey(int id, long[] dest, int offset);
+
+	/**
+	 * Returns the value associated with the given id.
+	 *
+	 * @param id id of a key in the store
+	 * @return the value
+	 */
+	long getValue(int id);
+
+	/**
+	 * Sets the value associated with the given id.
+	 *
+	 * @param id    id of a key in the store
+	 * @param value the new value
+	 */
+	void setValue(int id, long value);
+
+	/**
+	 * Removes every position from the store without releasing its memory.
+	 */
+	void clear();
+}
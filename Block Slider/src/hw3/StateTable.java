@@ -0,0 +1,200 @@
+package hw3;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table of packed positions on the heap. Every position
+ * added to the table is given an id, starting at zero and increasing by one for
+ * each new position, and a long value that the caller may use for whatever it
+ * needs (a move count, a parent id, ...). Keys are stored back to back in a
+ * single long array so that no object is created per position.
+ */
+public class StateTable implements StateStore
+{
+	/**
+	 * Number of longs in one key.
+	 */
+	private int words;
+
+	/**
+	 * Keys in the order they were added, key i starts at index i * words.
+	 */
+	private long[] keys;
+
+	/**
+	 * Value associated with each id.
+	 */
+	private long[] values;
+
+	/**
+	 * The hash index, each slot holds an id plus one, or zero if empty.
+	 */
+	private int[] slots;
+
+	/**
+	 * Number of positions in the table.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty table for keys of the given number of longs.
+	 *
+	 * @param words number of longs in one key
+	 */
+	public StateTable(int words)
+	{
+		this(words, 1024);
+	}
+
+	/**
+	 * Constructs an empty table for keys of the given number of longs that can
+	 * hold the expected number of positions before it grows.
+	 *
+	 * @param words    number of longs in one key
+	 * @param expected expected number of positions
+	 */
+	public StateTable(int words, int expected)
+	{
+		this.words = words;
+		int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expected - 1)) << 1);
+		keys = new long[capacity * words];
+		values = new long[capacity];
+		slots = new int[capacity * 2];
+		size = 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public int getWords()
+	{
+		return words;
+	}
+
+	@Override
+	public int find(long[] key, int offset)
+	{
+		int mask = slots.length - 1;
+		int slot = hash(key, offset, words) & mask;
+		while (slots[slot] != 0)
+		{
+			int id = slots[slot] - 1;
+			if (matches(id, key, offset))
+			{
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	@Override
+	public int add(long[] key, int offset)
+	{
+		if (size * 2 >= slots.length)
+		{
+			grow();
+		}
+
+		int mask = slots.length - 1;
+		int slot = hash(key, offset, words) & mask;
+		while (slots[slot] != 0)
+		{
+			int id = slots[slot] - 1;
+			if (matches(id, key, offset))
+			{
+				return -(id + 1);
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int id = size;
+		System.arraycopy(key, offset, keys, id * words, words);
+		values[id] = 0;
+		slots[slot] = id + 1;
+		size++;
+		return id;
+	}
+
+	@Override
+	public void getKey(int id, long[] dest, int offset)
+	{
+		System.arraycopy(keys, id * words, dest, offset, words);
+	}
+
+	@Override
+	public long getValue(int id)
+	{
+		return values[id];
+	}
+
+	@Override
+	public void setValue(int id, long value)
+	{
+		values[id] = value;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	/**
+	 * Returns true if the key with the given id equals the given key.
+	 */
+	private boolean matches(int id, long[] key, int offset)
+	{
+		int start = id * words;
+		for (int w = 0; w < words; w++)
+		{
+			if (keys[start + w] != key[offset + w])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Doubles the capacity of the table and rebuilds the hash index.
+	 */
+	private void grow()
+	{
+		int capacity = values.length * 2;
+		keys = Arrays.copyOf(keys, capacity * words);
+		values = Arrays.copyOf(values, capacity);
+		slots = new int[capacity * 2];
+
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++)
+		{
+			int slot = hash(keys, id * words, words) & mask;
+			while (slots[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Mixes the words of a key into a well spread 32 bit hash.
+	 */
+	static int hash(long[] key, int offset, int words)
+	{
+		long h = 0x9E3779B97F4A7C15L;
+		for (int w = 0; w < words; w++)
+		{
+			h = (h ^ key[offset + w]) * 0xBF58476D1CE4E5B9L;
+			h ^= h >>> 31;
+		}
+		h *= 0x94D049BB133111EBL;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,383 @@
+package hw3;
+
+import java.util.Arrays;
+
+/**
+ * Packs positions into a canonical key shared by every position that is the
+ * same up to symmetry, so a search only has to visit one of them.
+ * <p>
+ * Blocks of the same orientation and length in the same lane are
+ * interchangeable, so the key lists their coordinates in sorted order rather
+ * than block by block. A mirror image of a position, flipped left to right or
+ * top to bottom, is just as far from the goal when the walls, the exit, the
+ * blocks and the goal condition all look the same in the mirror, and in that
+ * case the key is the smallest of the keys of the position and its images.
+ * Mirroring reverses the order of interchangeable blocks in a lane, which is
+ * why both reductions are needed together.
+ */
+public class Symmetry
+{
+	/**
+	 * Layout of the board.
+	 */
+	private Layout layout;
+
+	/**
+	 * Group of each block, blocks of the same group are interchangeable.
+	 */
+	private int[] group;
+
+	/**
+	 * Blocks of each group in increasing index order.
+	 */
+	private int[][] members;
+
+	/**
+	 * True if some group has more than one block.
+	 */
+	private boolean hasSharedGroups;
+
+	/**
+	 * For each valid mirror, true if it flips columns.
+	 */
+	private boolean[] flipCols;
+
+	/**
+	 * For each valid mirror, true if it flips rows.
+	 */
+	private boolean[] flipRows;
+
+	/**
+	 * For each valid mirror, the group each group is sent to.
+	 */
+	private int[][] groupImage;
+
+	/**
+	 * Scratch coordinates of a canonical candidate.
+	 */
+	private int[] candidate;
+
+	/**
+	 * Scratch count of coordinates placed in each group.
+	 */
+	private int[] fill;
+
+	/**
+	 * Scratch key of a mirror image.
+	 */
+	private long[] trial;
+
+	/**
+	 * Constructs the canonical form for positions of the given layout.
+	 *
+	 * @param layout layout of the board
+	 */
+	public Symmetry(Layout layout)
+	{
+		this(layout, true);
+	}
+
+	/**
+	 * Constructs the canonical form for positions of the given layout. If reduce
+	 * is false the canonical key is always the plain packed position.
+	 *
+	 * @param layout layout of the board
+	 * @param reduce true to reduce by symmetry
+	 */
+	public Symmetry(Layout layout, boolean reduce)
+	{
+		this.layout = layout;
+		int n = layout.getBlockCount();
+		group = new int[n];
+		int groups = 0;
+		int[] first = new int[n];
+		for (int k = 0; k < n; k++)
+		{
+			group[k] = -1;
+			for (int g = 0; g < groups && group[k] < 0; g++)
+			{
+				if (sameKind(k, first[g]))
+				{
+					group[k] = g;
+				}
+			}
+			if (group[k] < 0)
+			{
+				first[groups] = k;
+				group[k] = groups++;
+			}
+		}
+
+		int[] sizes = new int[groups];
+		for (int k = 0; k < n; k++)
+		{
+			sizes[group[k]]++;
+		}
+		members = new int[groups][];
+		for (int g = 0; g < groups; g++)
+		{
+			members[g] = new int[sizes[g]];
+			hasSharedGroups |= reduce && sizes[g] > 1;
+			sizes[g] = 0;
+		}
+		for (int k = 0; k < n; k++)
+		{
+			members[group[k]][sizes[group[k]]++] = k;
+		}
+
+		// try left-right, top-bottom and both
+		boolean[] cols = { true, false, true };
+		boolean[] rows = { false, true, true };
+		int[][] images = new int[3][];
+		int valid = 0;
+		for (int t = 0; t < 3 && reduce; t++)
+		{
+			images[t] = groupImage(cols[t], rows[t]);
+			if (images[t] != null)
+			{
+				cols[valid] = cols[t];
+				rows[valid] = rows[t];
+				images[valid] = images[t];
+				valid++;
+			}
+		}
+		flipCols = Arrays.copyOf(cols, valid);
+		flipRows = Arrays.copyOf(rows, valid);
+		groupImage = Arrays.copyOf(images, valid);
+
+		candidate = new int[n];
+		fill = new int[groups];
+		trial = new long[layout.getWords()];
+	}
+
+	/**
+	 * Returns the number of mirror images that are equivalent to a position.
+	 *
+	 * @return number of valid mirrors, from 0 to 3
+	 */
+	public int getMirrorCount()
+	{
+		return flipCols.length;
+	}
+
+	/**
+	 * Returns true if the canonical key is always the plain packed position, so
+	 * there is nothing to reduce.
+	 *
+	 * @return true if no reduction applies to this layout
+	 */
+	public boolean isTrivial()
+	{
+		return !hasSharedGroups && flipCols.length == 0;
+	}
+
+	/**
+	 * Writes the canonical key of the given position into dest.
+	 *
+	 * @param positions the variable coordinate of each block
+	 * @param dest      array to write to
+	 * @param offset    index of the first word to write
+	 */
+	public void canonical(int[] positions, long[] dest, int offset)
+	{
+		if (isTrivial())
+		{
+			layout.pack(positions, dest, offset);
+			return;
+		}
+
+		System.arraycopy(positions, 0, candidate, 0, positions.length);
+		sortGroups();
+		layout.pack(candidate, dest, offset);
+
+		for (int t = 0; t < flipCols.length; t++)
+		{
+			Arrays.fill(fill, 0);
+			for (int k = 0; k < positions.length; k++)
+			{
+				int g = groupImage[t][group[k]];
+				candidate[members[g][fill[g]++]] = image(t, k, positions[k]);
+			}
+			sortGroups();
+			layout.pack(candidate, trial, 0);
+			if (compare(trial, dest, offset) < 0)
+			{
+				System.arraycopy(trial, 0, dest, offset, trial.length);
+			}
+		}
+	}
+
+	/**
+	 * Finds real moves from the given start through a chain of canonical keys,
+	 * such as the keys a search stored on its way to a solution. Each position of
+	 * the chain only has to be equivalent to the real position, so at each step
+	 * the move taken is one whose result has the next canonical key.
+	 *
+	 * @param start  the variable coordinate of each block at the start
+	 * @param chain  canonical keys of the positions from the start to the end of
+	 *               the path, back to back
+	 * @param length number of moves in the path
+	 * @param slides true if the path is made of slides rather than single cell
+	 *               moves
+	 * @return the encoded moves from the start
+	 * @throws IllegalStateException if no move from some position of the chain
+	 *                               leads to the next one
+	 */
+	public int[] replay(int[] start, long[] chain, int length, boolean slides)
+	{
+		int words = layout.getWords();
+		int[] positions = start.clone();
+		boolean[] occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		int[] moves = new int[slides ? layout.getMaxSlides() : layout.getMaxMoves()];
+		long[] key = new long[words];
+		int[] path = new int[length];
+
+		layout.fillOccupied(positions, occupied);
+		for (int step = 0; step < length; step++)
+		{
+			int count = slides ? layout.generateSlides(positions, occupied, moves)
+					: layout.generateMoves(positions, occupied, moves);
+			boolean found = false;
+			for (int i = 0; i < count && !found; i++)
+			{
+				layout.apply(positions, occupied, moves[i]);
+				canonical(positions, key, 0);
+				found = Arrays.equals(key, 0, words, chain, (step + 1) * words, (step + 2) * words);
+				if (found)
+				{
+					path[step] = moves[i];
+				}
+				else
+				{
+					layout.apply(positions, occupied, Layout.opposite(moves[i]));
+				}
+			}
+			if (!found)
+			{
+				throw new IllegalStateException("No move leads from step " + step + " to the next position of the chain");
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the coordinate of block k at the given coordinate in mirror t.
+	 */
+	private int image(int t, int k, int coordinate)
+	{
+		boolean flipsAlong = layout.isHorizontal(k) ? flipCols[t] : flipRows[t];
+		int size = layout.isHorizontal(k) ? layout.getColSize() : layout.getRowSize();
+		return flipsAlong ? size - layout.getLength(k) - coordinate : coordinate;
+	}
+
+	/**
+	 * Sorts the candidate coordinates within each group.
+	 */
+	private void sortGroups()
+	{
+		if (!hasSharedGroups)
+		{
+			return;
+		}
+		for (int[] blocks : members)
+		{
+			for (int i = 1; i < blocks.length; i++)
+			{
+				int value = candidate[blocks[i]];
+				int j = i - 1;
+				while (j >= 0 && candidate[blocks[j]] > value)
+				{
+					candidate[blocks[j + 1]] = candidate[blocks[j]];
+					j--;
+				}
+				candidate[blocks[j + 1]] = value;
+			}
+		}
+	}
+
+	/**
+	 * Returns the group each group is sent to by the given mirror, or null if the
+	 * mirror does not preserve the walls, the exits, the blocks or the goal.
+	 */
+	private int[] groupImage(boolean cols, boolean rows)
+	{
+		int rowSize = layout.getRowSize();
+		int colSize = layout.getColSize();
+		for (int i = 0; i < rowSize; i++)
+		{
+			for (int j = 0; j < colSize; j++)
+			{
+				int ii = rows ? rowSize - 1 - i : i;
+				int jj = cols ? colSize - 1 - j : j;
+				if (layout.isOpen(i, j) != layout.isOpen(ii, jj) || layout.isExit(i, j) != layout.isExit(ii, jj))
+				{
+					return null;
+				}
+			}
+		}
+
+		int[] image = new int[members.length];
+		for (int g = 0; g < members.length; g++)
+		{
+			int k = members[g][0];
+			boolean horizontal = layout.isHorizontal(k);
+			int lane = layout.getLane(k);
+
+			// a block whose end reaches an exit would reach it with its start in the
+			// mirror, unless the mirror runs across its lane
+			if ((horizontal && cols) || (!horizontal && rows))
+			{
+				for (int e = 0; e < layout.getExitCount(); e++)
+				{
+					if (lane == (horizontal ? layout.getExitRow(e) : layout.getExitCol(e)))
+					{
+						return null;
+					}
+				}
+			}
+
+			boolean flipsLane = horizontal ? rows : cols;
+			int laneImage = flipsLane ? (horizontal ? rowSize : colSize) - 1 - lane : lane;
+			image[g] = -1;
+			for (int h = 0; h < members.length; h++)
+			{
+				int m = members[h][0];
+				if (layout.isHorizontal(m) == horizontal && layout.getLength(m) == layout.getLength(k)
+						&& layout.getLane(m) == laneImage && members[h].length == members[g].length)
+				{
+					image[g] = h;
+				}
+			}
+			if (image[g] < 0)
+			{
+				return null;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Returns true if blocks a and b have the same orientation, length and lane.
+	 */
+	private boolean sameKind(int a, int b)
+	{
+		return layout.isHorizontal(a) == layout.isHorizontal(b) && layout.getLength(a) == layout.getLength(b)
+				&& layout.getLane(a) == layout.getLane(b);
+	}
+
+	/**
+	 * Compares two keys as unsigned numbers, last word first.
+	 */
+	private static int compare(long[] a, long[] b, int offset)
+	{
+		for (int w = a.length - 1; w >= 0; w--)
+		{
+			int c = Long.compareUnsigned(a[w], b[offset + w]);
+			if (c != 0)
+			{
+				return c;
+			}
+		}
+		return 0;
+	}
+}
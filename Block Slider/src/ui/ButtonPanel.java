@@ -6,7 +6,6 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Random;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -16,7 +15,6 @@ import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 import api.DescriptionUtil;
-import api.Move;
 import hw3.Board;
 
 /**
@@ -59,6 +57,11 @@ public class ButtonPanel extends JPanel {
 	 */
 	private ScorePanel scorePanel;
 
+	/**
+	 * Finds hints in the background.
+	 */
+	private HintFinder hintFinder;
+
 	/**
 	 * Constructs the file selection button panel.
 	 * 
@@ -68,6 +71,7 @@ public class ButtonPanel extends JPanel {
 	public ButtonPanel(BoardPanel boardPanel, ScorePanel scorePanel) {
 		this.boardPanel = boardPanel;
 		this.scorePanel = scorePanel;
+		hintFinder = new HintFinder(scorePanel);
 		loadButton = new JButton("Load");
 		resetButton = new JButton("Reset");
 		hintButton = new JButton("Hint");
@@ -82,15 +86,7 @@ public class ButtonPanel extends JPanel {
 	private class HintButtonHandler implements ActionListener {
 		@Override
 		public void actionPerformed(ActionEvent event) {
-			Board board = boardPanel.getBoard();
-			ArrayList<Move> moves = board.getAllPossibleMoves();
-			if (moves.size() > 0) {
-				Random rand = new Random();
-				int randomMove = rand.nextInt(moves.size());
-				JOptionPane.showMessageDialog(null, "Try moving block at " + moves.get(randomMove));
-			} else {
-				JOptionPane.showMessageDialog(null, "You are stuck!");
-			}
+			hintFinder.requestHint(boardPanel.getBoard());
 		}
 	}
 
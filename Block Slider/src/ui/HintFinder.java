@@ -0,0 +1,312 @@
+package ui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import api.Move;
+import hw3.BlockingHeuristic;
+import hw3.Board;
+import hw3.BreadthFirstSearch;
+import hw3.Layout;
+import hw3.SearchControl;
+import hw3.SolverResult;
+import hw3.StateTable;
+import hw3.Symmetry;
+
+/**
+ * Finds hints for the Hint button without blocking the event dispatch thread.
+ * A snapshot of the board's block positions is solved optimally on a
+ * background thread, and every position along the solution is cached with its
+ * next move, so following the hints only solves once. If no solution arrives
+ * before the deadline, a best guess from the blocking heuristic is shown
+ * instead and the search is cancelled. A search for a position the user has
+ * moved away from, or of a board that was replaced, is cancelled as well, so
+ * the background thread is always free for the hint being asked for. While a
+ * search runs, its elapsed time is shown in the score panel.
+ * <p>
+ * All methods must be called on the event dispatch thread.
+ */
+public class HintFinder {
+	/**
+	 * Largest number of moves in a solution searched for.
+	 */
+	private static final int MAX_MOVES = 500;
+
+	/**
+	 * Time to wait for a solution before showing a best guess.
+	 */
+	private static final int DEADLINE_MILLIS = 3000;
+
+	/**
+	 * Time between updates of the progress shown.
+	 */
+	private static final int PROGRESS_MILLIS = 100;
+
+	/**
+	 * Format string for displaying progress.
+	 */
+	private static final String PROGRESS_FORMAT = "Finding hint... %.1f s";
+
+	/**
+	 * Score panel to show progress in.
+	 */
+	private ScorePanel scorePanel;
+
+	/**
+	 * Background thread that runs the searches.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Board whose positions are cached.
+	 */
+	private Board cachedBoard;
+
+	/**
+	 * Next move of each cached position, keyed by its block positions. A move of
+	 * -1 means the position cannot be solved.
+	 */
+	private HashMap<String, Integer> cache = new HashMap<String, Integer>();
+
+	/**
+	 * Control of the search of each position with a search queued or running.
+	 */
+	private HashMap<String, SearchControl> pending = new HashMap<String, SearchControl>();
+
+	/**
+	 * Position of the hint the user is waiting for, or null if none.
+	 */
+	private String waiting;
+
+	/**
+	 * Time the user started waiting, in milliseconds.
+	 */
+	private long waitStart;
+
+	/**
+	 * Timer that shows progress and enforces the deadline while the user waits.
+	 */
+	private Timer timer;
+
+	/**
+	 * Constructs a hint finder that shows progress in the given panel.
+	 *
+	 * @param scorePanel the score panel
+	 */
+	public HintFinder(ScorePanel scorePanel) {
+		this.scorePanel = scorePanel;
+		executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "hint-solver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer = new Timer(PROGRESS_MILLIS, new ProgressHandler());
+	}
+
+	/**
+	 * Shows a hint for the current position of the given board, as soon as it is
+	 * known or the deadline passes.
+	 *
+	 * @param board the board to give a hint for
+	 */
+	public void requestHint(Board board) {
+		if (board != cachedBoard) {
+			cachedBoard = board;
+			cache.clear();
+			cancelSearches(null);
+		}
+		if (board.isGameOver()) {
+			JOptionPane.showMessageDialog(null, "The puzzle is already solved!");
+			return;
+		}
+
+		Layout layout = new Layout(board);
+		int[] positions = new int[layout.getBlockCount()];
+		layout.readPositions(board, positions);
+		String key = Arrays.toString(positions);
+		if (cache.containsKey(key)) {
+			showHint(board, cache.get(key), false);
+			return;
+		}
+
+		waiting = key;
+		waitStart = System.currentTimeMillis();
+		timer.restart();
+		showProgress();
+		cancelSearches(key);
+		if (!pending.containsKey(key)) {
+			SearchControl control = new SearchControl();
+			pending.put(key, control);
+			executor.execute(() -> search(board, layout, positions, key, control));
+		}
+	}
+
+	/**
+	 * Solves the given snapshot on the background thread and hands the solution
+	 * to the event dispatch thread. A search cancelled before it starts is
+	 * skipped.
+	 */
+	private void search(Board board, Layout layout, int[] positions, String key, SearchControl control) {
+		if (control.isCancelled()) {
+			return;
+		}
+		BreadthFirstSearch search = new BreadthFirstSearch(layout, MAX_MOVES, new StateTable(layout.getWords()),
+				new Symmetry(layout));
+		search.setControl(control);
+		SolverResult result = search.search(positions);
+		SwingUtilities.invokeLater(() -> solved(board, layout, positions, key, control, result));
+	}
+
+	/**
+	 * Caches the next move of every position along the given solution, and shows
+	 * the hint if the user is still waiting for it. A search that was cancelled
+	 * before it finished tells nothing about the position.
+	 */
+	private void solved(Board board, Layout layout, int[] positions, String key, SearchControl control,
+			SolverResult result) {
+		if (board != cachedBoard) {
+			return;
+		}
+		if (pending.get(key) == control) {
+			pending.remove(key);
+		}
+		if (result.isSolved()) {
+			int[] current = positions.clone();
+			for (int move : result.getMoves()) {
+				cache.put(Arrays.toString(current), move);
+				layout.apply(current, null, move);
+			}
+		} else if (result.isComplete()) {
+			cache.put(key, -1);
+		} else {
+			return;
+		}
+
+		if (key.equals(waiting)) {
+			stopWaiting();
+			if (cache.containsKey(currentKey(board))) {
+				showHint(board, cache.get(currentKey(board)), false);
+			} else {
+				// the user moved while waiting
+				requestHint(board);
+			}
+		}
+	}
+
+	/**
+	 * Cancels the searches of every position except the given one, which may be
+	 * null to cancel them all.
+	 */
+	private void cancelSearches(String keep) {
+		Iterator<Map.Entry<String, SearchControl>> it = pending.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, SearchControl> entry = it.next();
+			if (!entry.getKey().equals(keep)) {
+				entry.getValue().cancel();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the cache key of the current position of the given board.
+	 */
+	private static String currentKey(Board board) {
+		Layout layout = new Layout(board);
+		int[] positions = new int[layout.getBlockCount()];
+		layout.readPositions(board, positions);
+		return Arrays.toString(positions);
+	}
+
+	/**
+	 * Shows the given encoded move as a hint.
+	 */
+	private void showHint(Board board, int move, boolean guess) {
+		if (move < 0) {
+			JOptionPane.showMessageDialog(null, "There is no solution from here, try Reset.");
+			return;
+		}
+		Move hint = new Move(board.getBlocks().get(Layout.moveBlock(move)), Layout.moveDirection(move));
+		String prefix = guess ? "Still thinking, your best guess is moving block at " : "Try moving block at ";
+		JOptionPane.showMessageDialog(null, prefix + hint);
+	}
+
+	/**
+	 * Returns the move of the current position of the given board that looks
+	 * closest to the goal according to the blocking heuristic, or -1 if there is
+	 * no move.
+	 */
+	private int guess(Board board) {
+		Layout layout = new Layout(board);
+		BlockingHeuristic heuristic = new BlockingHeuristic(layout);
+		int[] positions = new int[layout.getBlockCount()];
+		boolean[] occupied = new boolean[layout.getRowSize() * layout.getColSize()];
+		int[] moves = new int[layout.getMaxMoves()];
+		layout.readPositions(board, positions);
+		layout.fillOccupied(positions, occupied);
+		int count = layout.generateMoves(positions, occupied, moves);
+
+		int best = -1;
+		int bestEstimate = Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			layout.apply(positions, null, moves[i]);
+			int estimate = heuristic.estimate(positions);
+			layout.apply(positions, null, Layout.opposite(moves[i]));
+			if (estimate < bestEstimate) {
+				bestEstimate = estimate;
+				best = moves[i];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Shows the time spent waiting in the score panel.
+	 */
+	private void showProgress() {
+		double seconds = (System.currentTimeMillis() - waitStart) / 1000.0;
+		scorePanel.setStatus(String.format(PROGRESS_FORMAT, seconds));
+	}
+
+	/**
+	 * Stops showing progress.
+	 */
+	private void stopWaiting() {
+		waiting = null;
+		timer.stop();
+		scorePanel.setStatus(null);
+	}
+
+	/**
+	 * Callback for the progress timer.
+	 */
+	private class ProgressHandler implements ActionListener {
+		@Override
+		public void actionPerformed(ActionEvent event) {
+			if (waiting == null) {
+				timer.stop();
+			} else if (System.currentTimeMillis() - waitStart < DEADLINE_MILLIS) {
+				showProgress();
+			} else {
+				cancelSearches(null);
+				stopWaiting();
+				int move = guess(cachedBoard);
+				if (move < 0) {
+					JOptionPane.showMessageDialog(null, "You are stuck!");
+				} else {
+					showHint(cachedBoard, move, true);
+				}
+			}
+		}
+	}
+}
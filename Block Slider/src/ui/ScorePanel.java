@@ -40,6 +40,11 @@ public class ScorePanel extends JPanel {
 	 */
 	private boolean done;
 
+	/**
+	 * Status line shown below the score, or null for none.
+	 */
+	private String status;
+
 	/**
 	 * Sets the score to be displayed in this panel.
 	 * 
@@ -51,11 +56,22 @@ public class ScorePanel extends JPanel {
 	}
 
 	/**
-	 * Resets the score to zero and clears the 'done' flag.
+	 * Sets a status line to be displayed below the score.
+	 * 
+	 * @param newStatus status to be displayed, or null to clear it
+	 */
+	public void setStatus(String newStatus) {
+		this.status = newStatus;
+		repaint();
+	}
+
+	/**
+	 * Resets the score to zero and clears the 'done' flag and the status.
 	 */
 	public void reset() {
 		done = false;
 		score = 0;
+		status = null;
 		repaint();
 	}
 
@@ -87,5 +103,13 @@ public class ScorePanel extends JPanel {
 		int y = (d.height) / 2;
 
 		g.drawString(text, x, y);
+
+		if (status != null) {
+			Font small = new Font(Font.SANS_SERIF, Font.PLAIN, GameMain.SCORE_FONT / 2);
+			g.setFont(small);
+			FontMetrics smallMetrics = g.getFontMetrics(small);
+			x = (d.width - smallMetrics.stringWidth(status)) / 2;
+			g.drawString(status, x, y + metrics.getDescent() + smallMetrics.getAscent());
+		}
 	}
 }